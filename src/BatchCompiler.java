@@ -0,0 +1,137 @@
+import org.antlr.v4.runtime.CharStreams;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * 여러 소스 파일을 병렬로 컴파일한다.
+ * 각 파일은 이름을 딴 class가 되어 같은 디렉터리에 저장된다. (예: fib.tpy -> fib.class)
+ * 파일마다 compiler를 새로 만들고, lexer/parser는 {@link ParserPool}에서 빌려 쓴다.
+ * (thread별로 compiler를 두면 함수 정의를 병렬로 변환하는 동안 ForkJoin worker가 다른 파일의 작업을 받아
+ * 같은 compiler를 reset 할 수 있다)
+ */
+public class BatchCompiler {
+    private final CompilerOptions options;
+    private final boolean emitJasmin; // class 파일 대신 Jasmin 텍스트 출력
+    private final CompileCache cache; // 사용하지 않으면 null
+
+    public BatchCompiler(CompilerOptions options, boolean emitJasmin, CompileCache cache) {
+        this.options = options;
+        this.emitJasmin = emitJasmin;
+        this.cache = cache;
+    }
+
+    /**
+     * 주어진 파일과 디렉터리 안의 .tpy 파일을 모두 컴파일하고 실패한 파일 수를 반환한다.
+     * 서로 다른 소스가 같은 출력 파일을 만들게 되면 (예: a-b.tpy와 a_b.tpy) 아무것도 컴파일하지 않고 실패한다.
+     */
+    public int compileAll(List<Path> inputs) throws IOException {
+        List<Path> sources = collect(inputs);
+        int conflicts = checkTargets(sources);
+        if (conflicts > 0) {
+            System.out.println("[Batch] 0 compiled, " + conflicts + " output name conflicts");
+            return conflicts;
+        }
+        AtomicInteger failed = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            pool.submit(() -> sources.parallelStream().forEach(source -> {
+                try {
+                    compileOne(source);
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    System.err.println("[Batch] " + source + ": " + e);
+                }
+            })).join();
+        } finally {
+            pool.shutdown();
+        }
+        System.out.println("[Batch] " + (sources.size() - failed.get()) + " compiled, " + failed.get() + " failed");
+        if (cache != null) {
+            System.out.println("[Cache] hits: " + cache.getHits() + ", misses: " + cache.getMisses() + ", evictions: " + cache.getEvictions());
+        }
+        return failed.get();
+    }
+
+    private void compileOne(Path source) throws IOException {
+        String className = classNameOf(source);
+        String text = Files.readString(source, StandardCharsets.UTF_8);
+        String key = cache == null ? null : CompileCache.keyOf(text, options, className, emitJasmin ? "jasmin" : "class");
+        Path target = targetOf(source);
+        byte[] output = cache == null ? null : cache.get(key);
+        if (output == null) {
+            tinyPythonCompiler compiler = new tinyPythonCompiler(options);
+            compiler.setLog(new PrintStream(OutputStream.nullOutputStream())); // 디버그 출력이 섞이지 않도록 버린다
+            ClassCode classCode = compiler.compile(CharStreams.fromString(text, source.toString()), className);
+            if (emitJasmin && cache == null) {
+                try (Writer out = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+                    JasminEmitter.emit(classCode, out); // 전체 텍스트를 만들지 않고 바로 쓴다
+                }
+                return;
+            }
+            output = emitJasmin ? JasminEmitter.emit(classCode).getBytes(StandardCharsets.UTF_8) : ClassFileEmitter.emit(classCode);
+            if (cache != null) cache.put(key, output);
+        }
+        Files.write(target, output);
+    }
+
+    // 출력 파일, 소스와 같은 디렉터리에 class 이름으로 만든다
+    private Path targetOf(Path source) {
+        return source.getParent().resolve(classNameOf(source) + (emitJasmin ? ".j" : ".class"));
+    }
+
+    // 같은 출력 파일을 만드는 소스 쌍을 알리고 그 수를 반환한다, 병렬 작업이 서로의 결과를 덮어쓰지 않도록 미리 확인한다
+    private int checkTargets(List<Path> sources) {
+        HashMap<Path, Path> owners = new HashMap<>(); // 출력 파일 -> 처음 만든 소스
+        int conflicts = 0;
+        for (Path source : sources) {
+            Path previous = owners.putIfAbsent(targetOf(source), source);
+            if (previous != null) {
+                ++conflicts;
+                System.err.println("[Batch] " + previous + " and " + source + " both compile to " + targetOf(source));
+            }
+        }
+        return conflicts;
+    }
+
+    // 디렉터리는 그 안의 .tpy 파일로 펼친다, 같은 파일이 여러 번 주어지면 한 번만 컴파일한다
+    private static List<Path> collect(List<Path> inputs) throws IOException {
+        LinkedHashSet<Path> sources = new LinkedHashSet<>();
+        for (Path input : inputs) {
+            if (Files.isDirectory(input)) {
+                try (Stream<Path> files = Files.walk(input)) {
+                    files.filter(path -> path.toString().endsWith(".tpy")).sorted().forEach(path -> sources.add(path.toAbsolutePath().normalize()));
+                }
+            } else {
+                sources.add(input.toAbsolutePath().normalize());
+            }
+        }
+        return new ArrayList<>(sources);
+    }
+
+    // 파일 이름에서 확장자를 떼고, Java 식별자로 쓸 수 없는 문자는 '_'로 바꾼다
+    static String classNameOf(Path source) {
+        String name = source.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) name = name.substring(0, dot);
+
+        StringBuilder className = new StringBuilder();
+        for (char c : name.toCharArray()) {
+            className.append(Character.isJavaIdentifierPart(c) ? c : '_');
+        }
+        if (className.length() == 0 || !Character.isJavaIdentifierStart(className.charAt(0))) className.insert(0, '_');
+        return className.toString();
+    }
+}
@@ -0,0 +1,116 @@
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 증분 컴파일에 쓰는 이전 빌드 결과.
+ * 함수 정의와 main body마다 fingerprint(해당 부분의 token, 옵션, class 이름의 hash)를 key로
+ * 최적화 전 method IR을 보관한다. fingerprint가 같은 부분은 다시 변환하지 않고 저장된 IR을 쓰며,
+ * 함수 사이에 걸치는 최적화(inline, memoize 등)는 class 전체에 대해 다시 수행한다.
+ */
+public class BuildArtifact {
+    private static final int MAGIC = 0x54505949; // "TPYI"
+    private static final int VERSION = 2; // IR 형식이나 내용이 바뀌면 올려서 이전 빌드 파일을 무시한다
+
+    private final Map<String, MethodCode> entries = new LinkedHashMap<>(); // fingerprint -> method IR
+    private int reused = 0; // 이번 컴파일에서 재사용한 수
+    private int regenerated = 0; // 이번 컴파일에서 새로 변환한 수
+
+    // 부분 tree의 fingerprint
+    public static String fingerprint(List<? extends ParseTree> parts, CompilerOptions options, String className) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((VERSION + "\0" + options.fingerprint() + "\0" + className + "\0").getBytes(StandardCharsets.UTF_8));
+            for (ParseTree part : parts) addTokens(digest, part);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // token 사이에 구분자를 넣어 "a b"와 "ab"를 구별한다
+    private static void addTokens(MessageDigest digest, ParseTree node) {
+        if (node.getChildCount() == 0) {
+            digest.update(node.getText().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            return;
+        }
+        for (int i = 0; i < node.getChildCount(); ++i) addTokens(digest, node.getChild(i));
+    }
+
+    // 저장된 IR의 복사본, 없으면 null
+    public MethodCode find(String fingerprint) {
+        MethodCode method = entries.get(fingerprint);
+        return method == null ? null : method.copy();
+    }
+
+    // 이번 빌드의 IR 기록, 이후 최적화가 원본을 바꾸므로 복사해 둔다
+    public void record(String fingerprint, MethodCode method, boolean reused) {
+        if (reused) ++this.reused;
+        else ++regenerated;
+        entries.put(fingerprint, method.copy());
+    }
+
+    public int getReused() {
+        return reused;
+    }
+
+    public int getRegenerated() {
+        return regenerated;
+    }
+
+    // 파일에서 읽기, 없거나 형식이 맞지 않으면 빈 artifact
+    public static BuildArtifact read(Path file) {
+        BuildArtifact artifact = new BuildArtifact();
+        if (!Files.exists(file)) return artifact;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return artifact;
+            int count = in.readInt();
+            for (int i = 0; i < count; ++i) {
+                String fingerprint = in.readUTF();
+                String name = in.readUTF();
+                String descriptor = in.readUTF();
+                int symbolCount = in.readInt();
+                int size = in.readInt();
+                HashMap<String, Label> labels = new HashMap<>();
+                InsnList body = new InsnList();
+                for (int j = 0; j < size; ++j) body.add(Insn.readFrom(in, labels));
+                artifact.entries.put(fingerprint, new MethodCode(name, descriptor, body, symbolCount));
+            }
+        } catch (IOException | RuntimeException e) {
+            return new BuildArtifact(); // 깨진 파일은 무시하고 전체를 다시 변환한다
+        }
+        return artifact;
+    }
+
+    // 파일에 쓰기, 임시 파일에 쓴 뒤 이름을 바꾼다
+    public void write(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, MethodCode> entry : entries.entrySet()) {
+                MethodCode method = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeUTF(method.getName());
+                out.writeUTF(method.getDescriptor());
+                out.writeInt(method.getSymbolCount());
+                out.writeInt(method.getBody().size());
+                for (Insn insn : method.getBody()) insn.writeTo(out);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
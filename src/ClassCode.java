@@ -0,0 +1,61 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * 컴파일된 class 하나의 정보.
+ * backend(Jasmin 텍스트, class 파일)는 이 정보를 받아 최종 결과를 만든다.
+ */
+public class ClassCode {
+    private final String name;
+    private final List<FieldCode> fields; // static field (memoization cache 등)
+    private final List<MethodCode> methods; // 정의된 순서대로 (함수들, main)
+
+    public ClassCode(String name, List<FieldCode> fields, List<MethodCode> methods) {
+        this.name = name;
+        this.fields = fields;
+        this.methods = methods;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<FieldCode> getFields() {
+        return fields;
+    }
+
+    public List<MethodCode> getMethods() {
+        return methods;
+    }
+
+    /**
+     * roots(이름+descriptor)와 거기서 호출하는 method만 남긴 class. static field는 그대로 둔다.
+     * 검증할 수 없는 method가 있어도 필요한 method만 따로 올릴 때 쓴다.
+     */
+    public ClassCode subset(Collection<String> roots) {
+        HashMap<String, MethodCode> byKey = new HashMap<>();
+        for (MethodCode method : methods) byKey.put(method.getName() + method.getDescriptor(), method);
+
+        HashSet<String> needed = new HashSet<>(roots);
+        ArrayList<String> work = new ArrayList<>(needed);
+        while (!work.isEmpty()) {
+            MethodCode method = byKey.get(work.remove(work.size() - 1));
+            if (method == null) continue;
+            for (Insn insn : method.getBody()) {
+                if (insn.getOp() == Opcode.INVOKESTATIC && name.equals(insn.getOwner())
+                        && needed.add(insn.getName() + insn.getDescriptor())) {
+                    work.add(insn.getName() + insn.getDescriptor());
+                }
+            }
+        }
+
+        List<MethodCode> kept = new ArrayList<>();
+        for (MethodCode method : methods) {
+            if (needed.contains(method.getName() + method.getDescriptor())) kept.add(method);
+        }
+        return new ClassCode(name, fields, kept);
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * 컴파일 결과를 Jasmin을 거치지 않고 class 파일 바이트로 바로 만드는 backend.
+ */
+public class ClassFileEmitter {
+
+    public static byte[] emit(ClassCode classCode) {
+        ClassFileWriter writer = new ClassFileWriter(classCode.getName(), "java/lang/Object");
+        for (FieldCode field : classCode.getFields()) {
+            writer.addField(ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_STATIC, field.getName(), field.getDescriptor());
+        }
+
+        // standard initializer
+        MethodWriter init = writer.newMethod(ClassFileWriter.ACC_PUBLIC, "<init>", "()V");
+        init.varInsn(Opcode.ALOAD, 0);
+        init.methodInsn(Opcode.INVOKESPECIAL, "java/lang/Object", "<init>", "()V");
+        init.insn(Opcode.RETURN);
+        init.maxs(1, 1);
+
+        for (MethodCode method : classCode.getMethods()) {
+            MethodWriter mw = writer.newMethod(ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_STATIC,
+                    method.getName(), method.getDescriptor());
+            emitBody(mw, method);
+            if (mw.needsLongJumps()) { // 32KB가 넘는 method는 4바이트 offset 분기로 다시 기록
+                mw.restartWithLongJumps();
+                emitBody(mw, method);
+            }
+            mw.maxs(method.getMaxStack(), method.getMaxLocals());
+        }
+        return writer.toByteArray();
+    }
+
+    private static void emitBody(MethodWriter mw, MethodCode method) {
+        for (Insn insn : method.getBody()) {
+            emitInsn(mw, insn);
+        }
+    }
+
+    // IR 명령어 하나를 바이트로 기록
+    private static void emitInsn(MethodWriter mw, Insn insn) {
+        if (insn.isLabel()) {
+            mw.label(insn.getLabel().getName());
+            return;
+        }
+
+        Opcode op = insn.getOp();
+        switch (op) {
+            case ILOAD, ISTORE, ALOAD, ASTORE -> mw.varInsn(op, insn.getOperand());
+            case BIPUSH, SIPUSH, NEWARRAY -> mw.intInsn(op, insn.getOperand());
+            case IINC -> mw.iinc(insn.getOperand(), insn.getIncrement());
+            case LDC -> {
+                if (insn.getConstant() != null) mw.ldc(insn.getConstant()); // 문자열 상수
+                else mw.ldc(insn.getOperand()); // 정수 상수
+            }
+            case ANEWARRAY -> mw.typeInsn(op, insn.getDescriptor());
+            case GETSTATIC, PUTSTATIC -> mw.fieldInsn(op, insn.getOwner(), insn.getName(), insn.getDescriptor());
+            case INVOKESTATIC, INVOKEVIRTUAL, INVOKESPECIAL ->
+                    mw.methodInsn(op, insn.getOwner(), insn.getName(), insn.getDescriptor());
+            default -> {
+                if (op.isJump()) mw.jumpInsn(op, insn.getLabel().getName());
+                else mw.insn(op);
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * class 파일을 바이트 배열로 직접 만드는 writer.
+ * constant pool과 method 목록을 관리하며, 각 method의 code는 {@link MethodWriter}가 만든다.
+ * StackMapTable이 필요 없는 49.0(Java 5) 버전으로 기록한다.
+ */
+public class ClassFileWriter {
+    public static final int ACC_PUBLIC = 0x0001;
+    public static final int ACC_STATIC = 0x0008;
+
+    private static final int MAJOR_VERSION = 49;
+
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    private final HashMap<String, Integer> poolIndex = new HashMap<>(); // 중복 상수 제거용
+    private int poolCount = 1; // constant pool index는 1부터 시작
+
+    private final List<int[]> fields = new ArrayList<>(); // {access, 이름 index, descriptor index}
+    private final List<MethodWriter> methods = new ArrayList<>();
+    private final int thisClass;
+    private final int superClass;
+
+    public ClassFileWriter(String className, String superName) {
+        this.thisClass = classRef(className);
+        this.superClass = classRef(superName);
+    }
+
+    // 새 field 추가
+    public void addField(int access, String name, String descriptor) {
+        fields.add(new int[]{access, utf8(name), utf8(descriptor)});
+    }
+
+    // 새 method 추가
+    public MethodWriter newMethod(int access, String name, String descriptor) {
+        MethodWriter method = new MethodWriter(this, access, utf8(name), utf8(descriptor));
+        methods.add(method);
+        return method;
+    }
+
+    // 완성된 class 파일 바이트
+    public byte[] toByteArray() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            int codeName = utf8("Code"); // constant pool을 쓰기 전에 등록해야 한다
+
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0); // minor version
+            out.writeShort(MAJOR_VERSION);
+            out.writeShort(poolCount);
+            pool.flush();
+            poolBytes.writeTo(out);
+
+            out.writeShort(ACC_PUBLIC | 0x0020); // ACC_SUPER
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0); // interfaces
+            out.writeShort(fields.size());
+            for (int[] field : fields) {
+                out.writeShort(field[0]);
+                out.writeShort(field[1]);
+                out.writeShort(field[2]);
+                out.writeShort(0); // field attributes
+            }
+
+            out.writeShort(methods.size());
+            for (MethodWriter method : methods) method.writeTo(out, codeName);
+
+            out.writeShort(0); // class attributes
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    int utf8(String value) {
+        Integer index = poolIndex.get("U" + value);
+        if (index != null) return index;
+        try {
+            pool.writeByte(1);
+            pool.writeUTF(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return register("U" + value, 1);
+    }
+
+    int classRef(String internalName) {
+        return constant("C" + internalName, 7, utf8(internalName), -1);
+    }
+
+    int string(String value) {
+        return constant("S" + value, 8, utf8(value), -1);
+    }
+
+    int integer(int value) {
+        Integer index = poolIndex.get("I" + value);
+        if (index != null) return index;
+        try {
+            pool.writeByte(3);
+            pool.writeInt(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return register("I" + value, 1);
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        return constant("F" + owner + "." + name + ":" + descriptor, 9, classRef(owner), nameAndType(name, descriptor));
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return constant("M" + owner + "." + name + descriptor, 10, classRef(owner), nameAndType(name, descriptor));
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        return constant("N" + name + ":" + descriptor, 12, utf8(name), utf8(descriptor));
+    }
+
+    // index 1~2개로 이루어진 상수 추가 (second가 -1이면 index 하나)
+    private int constant(String key, int tag, int first, int second) {
+        Integer index = poolIndex.get(key);
+        if (index != null) return index;
+        try {
+            pool.writeByte(tag);
+            pool.writeShort(first);
+            if (second >= 0) pool.writeShort(second);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return register(key, 1);
+    }
+
+    private int register(String key, int slots) {
+        int index = poolCount;
+        poolIndex.put(key, index);
+        poolCount += slots;
+        return index;
+    }
+}
@@ -0,0 +1,142 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 컴파일 결과(class 바이트 또는 Jasmin 텍스트)를 디스크에 보관하는 cache.
+ * key는 소스 내용, 컴파일 옵션, class 이름, 출력 형식의 SHA-256 값이며, 같은 key면 parse와 변환을 모두 건너뛴다.
+ * 전체 크기는 처음 열 때 한 번 세고 저장할 때마다 더해 둔다. 한도를 넘을 때만 디렉터리를 다시 훑어
+ * 가장 오래 사용하지 않은 파일(수정 시각 기준)부터 한도의 90%까지 지운다.
+ */
+public class CompileCache {
+    private static final String VERSION = "3"; // 생성 코드가 바뀌면 올려서 이전 cache를 무효화한다
+
+    private final Path dir;
+    private final long maxBytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong totalBytes; // 보관 중인 파일 크기 합 (다른 process가 바꾼 것은 다음 정리 때 반영)
+
+    public CompileCache(Path dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        long total = 0;
+        try {
+            for (Path file : listEntries()) total += sizeOf(file);
+        } catch (IOException e) {
+            // 디렉터리가 아직 없으면 빈 cache
+        }
+        this.totalBytes = new AtomicLong(total);
+    }
+
+    public static String keyOf(String source, CompilerOptions options, String className, String format) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : List.of(VERSION, options.fingerprint(), className, format, source)) {
+                digest.update(part.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0); // 구분자
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // 저장된 결과, 없으면 null
+    public byte[] get(String key) {
+        Path file = dir.resolve(key);
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis())); // 최근 사용 표시
+            hits.incrementAndGet();
+            return bytes;
+        } catch (IOException e) {
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    // 결과 저장, 다른 process가 읽는 중일 수 있으므로 임시 파일에 쓴 뒤 이름을 바꾼다
+    public void put(String key, byte[] bytes) {
+        try {
+            Files.createDirectories(dir);
+            Path temp = Files.createTempFile(dir, key, ".tmp");
+            Files.write(temp, bytes);
+            Path file = dir.resolve(key);
+            long replaced = Files.exists(file) ? sizeOf(file) : 0;
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (totalBytes.addAndGet(bytes.length - replaced) > maxBytes) evict();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // 한도를 넘었을 때만 호출된다, 실제 크기를 다시 세고 오래된 것부터 삭제
+    private synchronized void evict() throws IOException {
+        if (totalBytes.get() <= maxBytes) return; // 기다리는 동안 다른 thread가 정리했다
+        List<Path> files = listEntries();
+        long total = 0;
+        for (Path file : files) total += sizeOf(file);
+
+        long target = maxBytes / 10 * 9; // 한도 근처에서 매번 다시 정리하지 않도록 여유를 둔다
+        if (total > maxBytes) {
+            List<Path> oldestFirst = files.stream()
+                    .sorted((a, b) -> Long.compare(modifiedTime(a), modifiedTime(b)))
+                    .toList();
+            for (Path file : oldestFirst) {
+                if (total <= target) break;
+                long size = sizeOf(file);
+                if (Files.deleteIfExists(file)) {
+                    total -= size;
+                    evictions.incrementAndGet();
+                }
+            }
+        }
+        totalBytes.set(total);
+    }
+
+    private List<Path> listEntries() throws IOException {
+        try (Stream<Path> entries = Files.list(dir)) {
+            return entries.filter(path -> !path.toString().endsWith(".tmp")).toList();
+        }
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0; // 그 사이 다른 process가 지운 경우
+        }
+    }
+
+    private static long modifiedTime(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+}
@@ -0,0 +1,132 @@
+import org.antlr.v4.runtime.CharStreams;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 한 번 띄워 두고 계속 쓰는 컴파일 서버.
+ * JVM과 ANTLR 초기화 비용을 요청마다 다시 내지 않도록 localhost socket으로 소스를 받아 처리한다.
+ * 요청마다 새 compiler를 만들고, lexer/parser는 {@link ParserPool}에서 빌려 쓰므로 DFA cache만 공유된다.
+ *
+ * 요청: UTF 문자열 mode("compile" 또는 "run"), int 길이, UTF-8 소스
+ * 응답: int 상태(0 성공, 1 실패), int 길이, 내용(class 바이트, 실행 출력 또는 오류 메시지)
+ * run은 {@link GuardedRun}으로 실행마다 출력을 따로 모으고, 제한 시간이나 출력 크기를 넘긴 실행은 중단한다.
+ * 요청을 읽는 중 일정 시간 아무것도 오지 않으면 연결을 닫는다.
+ */
+public class CompileServer {
+    public static final int DEFAULT_PORT = 5959;
+    public static final int OK = 0;
+    public static final int ERROR = 1;
+    private static final int MAX_SOURCE_BYTES = 1 << 20; // 이보다 긴 소스는 받지 않는다
+    private static final long RUN_TIMEOUT_MILLIS = 10_000; // run 요청 하나의 실행 제한 시간
+    private static final int MAX_OUTPUT_BYTES = 1 << 20; // run 요청 하나가 모을 수 있는 출력 크기
+    private static final int READ_TIMEOUT_MILLIS = 5_000; // 요청을 보내다 멈춘 client를 기다리는 시간
+
+    private final int port;
+    private final CompilerOptions options;
+
+    public CompileServer(int port, CompilerOptions options) {
+        this.port = port;
+        this.options = options;
+    }
+
+    // 연결을 계속 받으며, 각 연결은 별도 thread에서 처리한다
+    public void serve() throws IOException {
+        ExecutorService workers = newWorkers();
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            System.out.println("[Server] listening on " + server.getLocalSocketAddress());
+            while (true) {
+                Socket client = server.accept();
+                workers.execute(() -> handle(client));
+            }
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    /**
+     * 요청 하나당 thread 하나를 쓴다.
+     * virtual thread를 지원하는 JVM(21 이상)이면 그것을 쓰고, 아니면 일반 thread pool을 쓴다.
+     * 소스는 Java 17로 컴파일되므로 reflection으로 찾는다.
+     */
+    private static ExecutorService newWorkers() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private void handle(Socket client) {
+        try (client;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(client.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(client.getOutputStream()))) {
+            client.setSoTimeout(READ_TIMEOUT_MILLIS); // 멈춘 client가 처리 thread를 계속 잡고 있지 않도록 한다
+            String mode = in.readUTF();
+            int length = in.readInt();
+            if (length < 0 || length > MAX_SOURCE_BYTES) {
+                reply(out, ERROR, ("source length out of range: " + length).getBytes(StandardCharsets.UTF_8)); // 내용은 읽지 않고 닫는다
+                return;
+            }
+            byte[] source = new byte[length];
+            in.readFully(source);
+
+            int status = OK;
+            byte[] reply;
+            try {
+                reply = process(mode, new String(source, StandardCharsets.UTF_8));
+            } catch (Exception | LinkageError | StackOverflowError e) { // 검증 실패, 깊은 재귀도 오류 응답으로 돌려준다
+                status = ERROR;
+                reply = String.valueOf(e).getBytes(StandardCharsets.UTF_8);
+            }
+            reply(out, status, reply);
+        } catch (IOException e) {
+            System.err.println("[Server] " + e);
+        }
+    }
+
+    private static void reply(DataOutputStream out, int status, byte[] content) throws IOException {
+        out.writeInt(status);
+        out.writeInt(content.length);
+        out.write(content);
+    }
+
+    // 요청 처리, 디버그 출력은 다른 요청의 실행 출력과 섞이지 않도록 버린다
+    private byte[] process(String mode, String source) throws Exception {
+        tinyPythonCompiler compiler = new tinyPythonCompiler(options);
+        compiler.setLog(new PrintStream(OutputStream.nullOutputStream()));
+        ClassCode classCode = compiler.compile(CharStreams.fromString(source));
+
+        return switch (mode) {
+            case "compile" -> ClassFileEmitter.emit(classCode);
+            case "run" -> GuardedRun.run(classCode, RUN_TIMEOUT_MILLIS, MAX_OUTPUT_BYTES).getBytes(StandardCharsets.UTF_8);
+            default -> throw new IllegalArgumentException("unknown mode: " + mode);
+        };
+    }
+
+    /**
+     * 서버에 요청 하나를 보내고 응답 내용을 받는다. 실패 응답이면 IOException을 던진다.
+     */
+    public static byte[] request(int port, String mode, String source) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+            out.writeUTF(mode);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.flush();
+
+            int status = in.readInt();
+            byte[] reply = new byte[in.readInt()];
+            in.readFully(reply);
+            if (status != OK) throw new IOException(new String(reply, StandardCharsets.UTF_8));
+            return reply;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+import java.util.EnumSet;
+
+/**
+ * 컴파일러 최적화 설정.
+ * 기본값은 모든 최적화를 켠 상태이며, Main의 -O0 옵션으로 모두 끌 수 있다.
+ */
+public class CompilerOptions {
+    private boolean foldConstants = true; // 상수 식 계산 및 대수적 단순화
+    private boolean useIinc = true; // x = x + c 형태를 iinc로 변환
+    private boolean compareWithZero = true; // 0과의 비교는 ifeq, iflt 등 operand 하나짜리 분기 사용
+    private boolean eliminateDeadCode = true; // 도달할 수 없는 코드와 의미 없는 분기 제거
+    private boolean eliminateTailCalls = true; // 자기 자신에 대한 꼬리 호출을 반복문으로 변환
+    private int inlineBudget = 35; // 이 바이트 수 이하인 함수는 호출 위치에 펼친다 (0이면 사용 안 함)
+    private boolean memoize = false; // 순수한 재귀 함수의 결과를 cache에 저장 (Main의 -memo 옵션)
+    private int memoCapacity = 4096; // 함수별 cache 칸 수, 2의 거듭제곱으로 올림
+    private boolean parallelDefs = true; // 함수 정의가 많으면 각 함수를 병렬로 변환
+    private EnumSet<PeepholeOptimizer.Rule> peepholeRules = EnumSet.allOf(PeepholeOptimizer.Rule.class); // 적용할 peephole 규칙
+
+    // 모든 최적화를 끈 설정
+    public static CompilerOptions none() {
+        CompilerOptions options = new CompilerOptions();
+        options.foldConstants = false;
+        options.useIinc = false;
+        options.compareWithZero = false;
+        options.eliminateDeadCode = false;
+        options.eliminateTailCalls = false;
+        options.inlineBudget = 0;
+        options.memoize = false;
+        options.peepholeRules = EnumSet.noneOf(PeepholeOptimizer.Rule.class);
+        return options;
+    }
+
+    // 같은 설정의 복사본, 일부만 바꿔 쓸 때 원래 객체에 영향을 주지 않는다
+    public CompilerOptions copy() {
+        CompilerOptions copy = new CompilerOptions();
+        copy.foldConstants = foldConstants;
+        copy.useIinc = useIinc;
+        copy.compareWithZero = compareWithZero;
+        copy.eliminateDeadCode = eliminateDeadCode;
+        copy.eliminateTailCalls = eliminateTailCalls;
+        copy.inlineBudget = inlineBudget;
+        copy.memoize = memoize;
+        copy.memoCapacity = memoCapacity;
+        copy.parallelDefs = parallelDefs;
+        copy.peepholeRules = EnumSet.copyOf(peepholeRules);
+        return copy;
+    }
+
+    // 출력 결과에 영향을 주는 설정을 나열한 문자열, compile cache의 key에 쓴다 (parallelDefs는 결과가 같으므로 제외)
+    public String fingerprint() {
+        return "fold=" + foldConstants + ",iinc=" + useIinc + ",zero=" + compareWithZero + ",dce=" + eliminateDeadCode
+                + ",tail=" + eliminateTailCalls + ",inline=" + inlineBudget + ",memo=" + memoize + ":" + memoCapacity
+                + ",peephole=" + peepholeRules;
+    }
+
+    public boolean isFoldConstants() {
+        return foldConstants;
+    }
+
+    public CompilerOptions setFoldConstants(boolean foldConstants) {
+        this.foldConstants = foldConstants;
+        return this;
+    }
+
+    public boolean isUseIinc() {
+        return useIinc;
+    }
+
+    public CompilerOptions setUseIinc(boolean useIinc) {
+        this.useIinc = useIinc;
+        return this;
+    }
+
+    public boolean isCompareWithZero() {
+        return compareWithZero;
+    }
+
+    public CompilerOptions setCompareWithZero(boolean compareWithZero) {
+        this.compareWithZero = compareWithZero;
+        return this;
+    }
+
+    public boolean isEliminateDeadCode() {
+        return eliminateDeadCode;
+    }
+
+    public CompilerOptions setEliminateDeadCode(boolean eliminateDeadCode) {
+        this.eliminateDeadCode = eliminateDeadCode;
+        return this;
+    }
+
+    public boolean isEliminateTailCalls() {
+        return eliminateTailCalls;
+    }
+
+    public CompilerOptions setEliminateTailCalls(boolean eliminateTailCalls) {
+        this.eliminateTailCalls = eliminateTailCalls;
+        return this;
+    }
+
+    public int getInlineBudget() {
+        return inlineBudget;
+    }
+
+    public CompilerOptions setInlineBudget(int inlineBudget) {
+        this.inlineBudget = inlineBudget;
+        return this;
+    }
+
+    public boolean isMemoize() {
+        return memoize;
+    }
+
+    public CompilerOptions setMemoize(boolean memoize) {
+        this.memoize = memoize;
+        return this;
+    }
+
+    public int getMemoCapacity() {
+        return memoCapacity;
+    }
+
+    public CompilerOptions setMemoCapacity(int memoCapacity) {
+        this.memoCapacity = memoCapacity;
+        return this;
+    }
+
+    public boolean isParallelDefs() {
+        return parallelDefs;
+    }
+
+    public CompilerOptions setParallelDefs(boolean parallelDefs) {
+        this.parallelDefs = parallelDefs;
+        return this;
+    }
+
+    public EnumSet<PeepholeOptimizer.Rule> getPeepholeRules() {
+        return peepholeRules;
+    }
+
+    public CompilerOptions setPeepholeRules(EnumSet<PeepholeOptimizer.Rule> peepholeRules) {
+        this.peepholeRules = peepholeRules;
+        return this;
+    }
+}
@@ -0,0 +1,91 @@
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeProperty;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * expression tree의 상수 부분을 컴파일 시점에 계산한다.
+ * 한 번만 할당되는 변수에 상수가 들어가면, 할당 이후의 사용 위치에서도 상수로 취급한다.
+ * 계산은 int 연산 그대로 하므로 32비트 overflow 결과도 실행 시와 같다.
+ */
+public class ConstantFolder {
+    private final HashMap<String, tinyPythonParser.Assignment_stmtContext> singleAssignment = new HashMap<>(); // 한 번만 할당된 변수
+    private final HashSet<String> reassigned = new HashSet<>(); // 두 번 이상 할당되었거나 인자인 변수
+    private ParseTreeProperty<Integer> values = new ParseTreeProperty<>(); // expression별 계산 결과 (상수가 아니면 null)
+    private ParseTreeProperty<Boolean> computed = new ParseTreeProperty<>();
+
+    /**
+     * 새 scope(함수 body 또는 main body)의 할당 정보를 수집한다.
+     * roots는 scope에 속한 statement들, params는 함수 인자 이름이다.
+     */
+    public void enterScope(Collection<? extends ParseTree> roots, Collection<String> params) {
+        singleAssignment.clear();
+        reassigned.clear();
+        reassigned.addAll(params);
+        values = new ParseTreeProperty<>();
+        computed = new ParseTreeProperty<>();
+        for (ParseTree root : roots) collectAssignments(root);
+    }
+
+    private void collectAssignments(ParseTree node) {
+        if (node instanceof tinyPythonParser.Assignment_stmtContext assignment) {
+            String name = assignment.NAME().getText();
+            if (reassigned.contains(name)) return;
+            if (singleAssignment.remove(name) != null) reassigned.add(name); // 두 번째 할당
+            else singleAssignment.put(name, assignment);
+            return;
+        }
+        for (int i = 0; i < node.getChildCount(); ++i) collectAssignments(node.getChild(i));
+    }
+
+    // expression의 상수 값, 상수가 아니면 null
+    public Integer valueOf(tinyPythonParser.ExprContext expr) {
+        if (computed.get(expr) != null) return values.get(expr);
+        Integer value = compute(expr);
+        computed.put(expr, Boolean.TRUE);
+        values.put(expr, value);
+        return value;
+    }
+
+    private Integer compute(tinyPythonParser.ExprContext expr) {
+        if (expr.NUMBER() != null) {
+            return Integer.parseInt(expr.NUMBER().getText());
+        } else if (expr.NAME() != null) {
+            if (expr.opt_paren().CLOSE_PAREN() != null) return null; // 함수 호출은 상수가 아니다
+            // 한 번만 할당된 변수는 할당문 뒤에서 사용될 때만 상수로 본다
+            tinyPythonParser.Assignment_stmtContext assignment = singleAssignment.get(expr.NAME().getText());
+            if (assignment == null) return null;
+            if (expr.getStart().getTokenIndex() <= assignment.getStop().getTokenIndex()) return null;
+            return valueOf(assignment.expr());
+        } else if (expr.expr().size() == 1) {
+            return valueOf(expr.expr(0)); // 괄호
+        }
+
+        Integer left = valueOf(expr.expr(0));
+        Integer right = valueOf(expr.expr(1));
+        boolean isAdd = expr.getChild(1).getText().equals("+");
+        if (left != null && right != null) {
+            return isAdd ? left + right : left - right;
+        }
+        if (!isAdd && isSameValue(expr.expr(0), expr.expr(1))) {
+            return 0; // x - x
+        }
+        return null;
+    }
+
+    // 두 expression이 부작용 없이 항상 같은 값을 가지는지 확인
+    public static boolean isSameValue(tinyPythonParser.ExprContext e1, tinyPythonParser.ExprContext e2) {
+        return isPure(e1) && e1.getText().equals(e2.getText());
+    }
+
+    // 함수 호출이 없는 expression인지 확인
+    public static boolean isPure(tinyPythonParser.ExprContext expr) {
+        if (expr.NAME() != null) return expr.opt_paren().CLOSE_PAREN() == null;
+        for (tinyPythonParser.ExprContext child : expr.expr()) {
+            if (!isPure(child)) return false;
+        }
+        return true;
+    }
+}
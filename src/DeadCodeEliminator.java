@@ -0,0 +1,131 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * method body를 basic block 단위의 control flow graph로 나누고
+ * 도달할 수 없는 block, 의미 없는 분기, 사용되지 않는 label을 제거한다.
+ */
+public class DeadCodeEliminator {
+
+    // basic block: label로 시작하거나 분기 다음에서 시작하고, 분기나 return으로 끝나는 명령어 묶음
+    private static class Block {
+        final List<Insn> insns = new ArrayList<>();
+        final List<Block> successors = new ArrayList<>();
+        boolean hasCode = false; // label 외의 명령어가 있는지
+        boolean reachable = false;
+    }
+
+    // 더 이상 바뀌지 않을 때까지 제거하고, 바뀐 것이 있으면 true
+    public static boolean eliminate(InsnList body) {
+        boolean changed = false;
+        boolean progress = true;
+        while (progress) {
+            progress = removeUnreachable(body);
+            progress |= removeJumpsToNext(body);
+            progress |= removeUnusedLabels(body);
+            changed |= progress;
+        }
+        return changed;
+    }
+
+    // 시작 block에서 도달할 수 없는 block의 명령어 제거
+    private static boolean removeUnreachable(InsnList body) {
+        List<Block> blocks = new ArrayList<>();
+        HashMap<Label, Block> labelBlock = new HashMap<>();
+        Block current = null;
+
+        // basic block 나누기
+        for (Insn insn : body) {
+            if (current == null || (insn.isLabel() && current.hasCode)) {
+                current = new Block();
+                blocks.add(current);
+            }
+            current.insns.add(insn);
+            if (insn.isLabel()) {
+                labelBlock.put(insn.getLabel(), current);
+            } else {
+                current.hasCode = true;
+                if (insn.getOp().isJump() || insn.getOp().isUnconditional()) current = null; // block 종료
+            }
+        }
+        if (blocks.isEmpty()) return false;
+
+        // block 사이의 간선 연결
+        for (int i = 0; i < blocks.size(); ++i) {
+            Block block = blocks.get(i);
+            Insn last = block.insns.get(block.insns.size() - 1);
+            if (!last.isLabel() && last.getOp().isJump()) {
+                Block target = labelBlock.get(last.getLabel());
+                if (target != null) block.successors.add(target);
+            }
+            boolean fallsThrough = last.isLabel() || !last.getOp().isUnconditional();
+            if (fallsThrough && i + 1 < blocks.size()) block.successors.add(blocks.get(i + 1));
+        }
+
+        // 시작 block에서부터 도달 가능한 block 표시
+        ArrayDeque<Block> work = new ArrayDeque<>();
+        blocks.get(0).reachable = true;
+        work.push(blocks.get(0));
+        while (!work.isEmpty()) {
+            for (Block next : work.pop().successors) {
+                if (!next.reachable) {
+                    next.reachable = true;
+                    work.push(next);
+                }
+            }
+        }
+
+        boolean changed = false;
+        for (Block block : blocks) {
+            if (block.reachable) continue;
+            for (Insn insn : block.insns) body.remove(insn);
+            changed = true;
+        }
+        return changed;
+    }
+
+    // 바로 다음 위치로 가는 분기 제거, 조건 분기는 비교할 값만 버린다
+    private static boolean removeJumpsToNext(InsnList body) {
+        boolean changed = false;
+        for (Insn insn = body.getFirst(); insn != null; ) {
+            Insn following = insn.getNext();
+            if (!insn.isLabel() && insn.getOp().isJump() && isLabelAhead(insn)) {
+                int operands = -insn.getStackEffect(); // 조건 분기가 꺼내는 값의 수
+                if (operands == 1) body.insertBefore(insn, Insn.simple(Opcode.POP));
+                else if (operands == 2) body.insertBefore(insn, Insn.simple(Opcode.POP2));
+                body.remove(insn);
+                changed = true;
+            }
+            insn = following;
+        }
+        return changed;
+    }
+
+    // 분기 명령어와 대상 label 사이에 label만 있는지 확인
+    private static boolean isLabelAhead(Insn jump) {
+        for (Insn next = jump.getNext(); next != null && next.isLabel(); next = next.getNext()) {
+            if (next.getLabel() == jump.getLabel()) return true;
+        }
+        return false;
+    }
+
+    // 어떤 분기에서도 사용하지 않는 label 제거
+    private static boolean removeUnusedLabels(InsnList body) {
+        HashSet<Label> used = new HashSet<>();
+        for (Insn insn : body) {
+            if (!insn.isLabel() && insn.getOp().isJump()) used.add(insn.getLabel());
+        }
+
+        boolean changed = false;
+        for (Insn insn : body) {
+            if (insn.isLabel() && !used.contains(insn.getLabel())) {
+                body.remove(insn);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+}
@@ -1,8 +1,121 @@
 import java.io.*;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 public class ExecuteJasmin {
+    private static final String JASMIN_JAR = "./jasmin-2.4/jasmin.jar";
+    private static final Object OUTPUT_LOCK = new Object(); // System.out 교체는 전역이므로 실행을 직렬화한다
+
+    // jasmin.ClassFile API (jar를 한 번만 로드하고 재사용)
+    private static Constructor<?> classFileCtor;
+    private static Method readJasmin;
+    private static Method errorCount;
+    private static Method writeClass;
+
     public static void main(String[] args) {
-        final String execJasminCmd = "java -jar ./jasmin-2.4/jasmin.jar Test.j";
+        // -process 옵션을 주면 이전처럼 jasmin과 java를 별도 프로세스로 실행한다
+        if (args.length > 0 && args[0].equals("-process")) {
+            executeByProcess();
+            return;
+        }
+
+        try {
+            byte[] classBytes = loadCompiled();
+            String result = run(classBytes); // 같은 JVM 안에서 실행
+            System.out.println("결과: " + result);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Main이 만든 결과를 읽는다. 기본 출력인 Test.class를 쓰고, -jasmin으로 만든 Test.j만 있거나
+     * Test.j가 더 최근 것이면 같은 JVM 안에서 assemble 한다.
+     */
+    private static byte[] loadCompiled() throws Exception {
+        Path classFile = Path.of("Test.class");
+        Path jasminFile = Path.of("Test.j");
+        boolean useJasmin = Files.exists(jasminFile)
+                && (!Files.exists(classFile) || Files.getLastModifiedTime(jasminFile).compareTo(Files.getLastModifiedTime(classFile)) > 0);
+        if (!useJasmin) return Files.readAllBytes(classFile);
+        return assemble(Files.readString(jasminFile), "Test.j");
+    }
+
+    /**
+     * Jasmin 소스를 같은 프로세스 안에서 class 바이트로 변환한다.
+     * jasmin.jar의 ClassFile API를 직접 호출하므로 JVM을 새로 띄우지 않는다.
+     */
+    public static byte[] assemble(String jasminSource, String sourceName) throws Exception {
+        loadJasmin();
+        Object classFile = classFileCtor.newInstance();
+        try {
+            readJasmin.invoke(classFile, new StringReader(jasminSource), sourceName, false);
+            if ((int) errorCount.invoke(classFile) > 0) {
+                throw new IOException(sourceName + ": Jasmin assemble 실패");
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeClass.invoke(classFile, out);
+            return out.toByteArray();
+        } catch (InvocationTargetException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * class 바이트를 hidden class로 올리고 main을 실행한다.
+     * 실행 중 System.out은 버퍼로 교체되며 출력 결과를 문자열로 반환한다.
+     */
+    public static String run(byte[] classBytes) throws Exception {
+        return run(HiddenScript.define(classBytes));
+    }
+
+    public static String run(HiddenScript script) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        synchronized (OUTPUT_LOCK) {
+            PrintStream original = System.out;
+            System.setOut(new PrintStream(buffer, true, StandardCharsets.UTF_8));
+            try {
+                script.runMain();
+            } finally {
+                System.out.flush();
+                System.setOut(original);
+            }
+        }
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    // jasmin.jar를 class loader로 열고 필요한 메서드를 찾아둔다
+    private static synchronized void loadJasmin() throws Exception {
+        if (classFileCtor != null) return;
+
+        File jar = new File(JASMIN_JAR);
+        if (!jar.exists()) throw new FileNotFoundException(JASMIN_JAR);
+        URLClassLoader loader = new URLClassLoader(new URL[]{jar.toURI().toURL()}, ExecuteJasmin.class.getClassLoader());
+        Class<?> classFileType = loader.loadClass("jasmin.ClassFile");
+
+        readJasmin = classFileType.getMethod("readJasmin", Reader.class, String.class, boolean.class);
+        errorCount = classFileType.getMethod("errorCount");
+        writeClass = classFileType.getMethod("write", OutputStream.class);
+        classFileCtor = classFileType.getConstructor();
+    }
+
+    // reflection 호출에서 발생한 실제 예외를 꺼낸다
+    private static Exception unwrap(InvocationTargetException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof Exception) return (Exception) cause;
+        if (cause instanceof Error) throw (Error) cause;
+        return e;
+    }
+
+    // 기존 방식: jasmin과 java를 각각 별도 프로세스로 실행
+    private static void executeByProcess() {
+        final String execJasminCmd = "java -jar " + JASMIN_JAR + " Test.j";
 
         try {
             Process p = Runtime.getRuntime().exec(execJasminCmd);
@@ -28,6 +141,5 @@ public class ExecuteJasmin {
         } catch (IOException | InterruptedException ie) {
             ie.printStackTrace();
         }
-
     }
 }
@@ -0,0 +1,20 @@
+/**
+ * 생성된 class에 들어가는 static field 하나의 정보.
+ */
+public class FieldCode {
+    private final String name;
+    private final String descriptor;
+
+    public FieldCode(String name, String descriptor) {
+        this.name = name;
+        this.descriptor = descriptor;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescriptor() {
+        return descriptor;
+    }
+}
@@ -0,0 +1,68 @@
+import java.util.ArrayDeque;
+import java.util.HashMap;
+
+/**
+ * method의 실제 operand stack 최대 깊이와 지역 변수 수를 계산한다.
+ * 모든 분기 대상을 따라가며 각 명령어 위치의 stack 깊이를 구한다.
+ */
+public class FrameSizeAnalyzer {
+
+    // method의 .limit stack, .limit locals 값을 계산해서 저장
+    public static void analyze(MethodCode method) {
+        InsnList body = method.getBody();
+        method.setLimits(maxStack(body), maxLocals(body, method.getSymbolCount(), method.getDescriptor()));
+    }
+
+    // 도달 가능한 모든 경로에서의 최대 stack 깊이
+    public static int maxStack(InsnList body) {
+        HashMap<Label, Insn> labelPosition = new HashMap<>(); // label -> label 명령어
+        for (Insn insn : body) {
+            if (insn.isLabel()) labelPosition.put(insn.getLabel(), insn);
+        }
+
+        HashMap<Insn, Integer> depthAt = new HashMap<>(); // 명령어 실행 전 stack 깊이
+        ArrayDeque<Insn> work = new ArrayDeque<>();
+        ArrayDeque<Integer> workDepth = new ArrayDeque<>();
+        int max = 0;
+        if (body.getFirst() != null) {
+            work.push(body.getFirst());
+            workDepth.push(0);
+        }
+
+        while (!work.isEmpty()) {
+            Insn insn = work.pop();
+            int depth = workDepth.pop();
+
+            // 다음 명령어로 진행하며 분기 대상은 작업 목록에 추가
+            while (insn != null && !depthAt.containsKey(insn)) {
+                depthAt.put(insn, depth);
+                depth += insn.getStackEffect();
+                max = Math.max(max, depth);
+
+                Opcode op = insn.getOp();
+                if (op != null && op.isJump()) {
+                    Insn target = labelPosition.get(insn.getLabel());
+                    if (target != null) {
+                        work.push(target);
+                        workDepth.push(depth);
+                    }
+                }
+                if (op != null && op.isUnconditional()) break;
+                insn = insn.getNext();
+            }
+        }
+        return max;
+    }
+
+    // 사용되는 가장 큰 지역 변수 index + 1, symbol table과 인자 수보다 작아지지 않는다
+    public static int maxLocals(InsnList body, int symbolCount, String descriptor) {
+        int max = Math.max(symbolCount, Insn.argumentSize(descriptor));
+        for (Insn insn : body) {
+            Opcode op = insn.getOp();
+            if (op == Opcode.ILOAD || op == Opcode.ISTORE || op == Opcode.ALOAD || op == Opcode.ASTORE || op == Opcode.IINC) {
+                max = Math.max(max, insn.getOperand() + 1);
+            }
+        }
+        return max;
+    }
+}
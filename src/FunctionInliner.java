@@ -0,0 +1,117 @@
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * 크기가 작고 재귀가 아닌 함수의 호출을 호출 위치에 함수 body로 펼친다.
+ * 인자와 지역 변수는 호출한 method의 빈 지역 변수 자리로 옮기고,
+ * ireturn은 펼친 코드의 끝으로 가는 goto로 바꾼다. (반환 값은 stack에 남는다)
+ */
+public class FunctionInliner {
+    private final String className;
+    private final int budget; // 펼칠 함수 body의 최대 바이트 수
+    private final HashMap<String, MethodCode> functions = new HashMap<>(); // 이름+descriptor -> 함수
+    private final HashSet<String> recursive = new HashSet<>(); // 자기 자신에게 다시 도달하는 함수
+    private final HashSet<String> expanded = new HashSet<>(); // 호출 펼치기가 끝난 함수
+    private int copyIdx = 0; // 펼친 label 이름에 붙일 번호
+
+    public FunctionInliner(String className, List<MethodCode> methods, int budget) {
+        this.className = className;
+        this.budget = budget;
+        for (MethodCode method : methods) {
+            if (!method.getName().equals("main")) functions.put(key(method.getName(), method.getDescriptor()), method);
+        }
+        findRecursive();
+    }
+
+    // 모든 method의 호출을 펼친다
+    public void inlineAll(List<MethodCode> methods) {
+        for (MethodCode method : methods) expand(method);
+    }
+
+    // 호출 관계를 따라가서 자기 자신으로 돌아오는 함수(상호 재귀 포함) 찾기
+    private void findRecursive() {
+        for (String name : functions.keySet()) {
+            HashSet<String> visited = new HashSet<>();
+            if (reaches(name, name, visited)) recursive.add(name);
+        }
+    }
+
+    private boolean reaches(String from, String target, HashSet<String> visited) {
+        for (Insn insn : functions.get(from).getBody()) {
+            String callee = calleeOf(insn);
+            if (callee == null) continue;
+            if (callee.equals(target)) return true;
+            if (visited.add(callee) && reaches(callee, target, visited)) return true;
+        }
+        return false;
+    }
+
+    // method 안의 펼칠 수 있는 호출을 모두 펼친다, 호출되는 함수를 먼저 처리한다
+    private void expand(MethodCode method) {
+        String self = key(method.getName(), method.getDescriptor());
+        if (!expanded.add(self)) return;
+
+        InsnList body = method.getBody();
+        int base = FrameSizeAnalyzer.maxLocals(body, method.getSymbolCount(), method.getDescriptor()); // 펼친 함수가 쓸 지역 변수 시작 위치
+        for (Insn insn = body.getFirst(); insn != null; ) {
+            Insn next = insn.getNext();
+            String callee = calleeOf(insn);
+            if (callee != null && !recursive.contains(callee)) {
+                MethodCode target = functions.get(callee);
+                expand(target);
+                if (PeepholeOptimizer.sizeOf(target.getBody()) <= budget) {
+                    body.insertBefore(insn, copyBody(target, base));
+                    body.remove(insn);
+                }
+            }
+            insn = next;
+        }
+    }
+
+    // 함수 body를 지역 변수 위치 base부터 쓰도록 복사
+    private InsnList copyBody(MethodCode function, int base) {
+        InsnList code = new InsnList();
+        HashMap<Label, Label> labels = new HashMap<>(); // 원래 label -> 복사한 label
+        Label end = new Label("Inline" + (copyIdx++));
+
+        // stack에 있는 인자를 새 지역 변수 자리에 저장 (마지막 인자부터)
+        for (int i = Insn.argumentSize(function.getDescriptor()) - 1; i >= 0; --i) {
+            code.add(Insn.var(Opcode.ISTORE, base + i));
+        }
+
+        for (Insn insn : function.getBody()) {
+            Opcode op = insn.getOp();
+            if (insn.isLabel()) {
+                code.add(Insn.label(copyLabel(labels, insn.getLabel())));
+            } else if (op == Opcode.IRETURN) {
+                code.add(Insn.jump(Opcode.GOTO, end)); // 반환 값을 stack에 둔 채로 끝으로 이동
+            } else if (op.isJump()) {
+                code.add(Insn.jump(op, copyLabel(labels, insn.getLabel())));
+            } else if (op == Opcode.ILOAD || op == Opcode.ISTORE) {
+                code.add(Insn.var(op, base + insn.getOperand()));
+            } else if (op == Opcode.IINC) {
+                code.add(Insn.iinc(base + insn.getOperand(), insn.getIncrement()));
+            } else {
+                code.add(insn.copy());
+            }
+        }
+        code.add(Insn.label(end));
+        return code;
+    }
+
+    private Label copyLabel(HashMap<Label, Label> labels, Label original) {
+        return labels.computeIfAbsent(original, l -> new Label(l.getName() + "_" + copyIdx));
+    }
+
+    // 이 class의 함수를 호출하는 명령어이면 함수 key, 아니면 null
+    private String calleeOf(Insn insn) {
+        if (insn.getOp() != Opcode.INVOKESTATIC || !className.equals(insn.getOwner())) return null;
+        String key = key(insn.getName(), insn.getDescriptor());
+        return functions.containsKey(key) ? key : null;
+    }
+
+    private static String key(String name, String descriptor) {
+        return name + descriptor;
+    }
+}
@@ -0,0 +1,113 @@
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * 서버처럼 여러 실행이 동시에 도는 곳에서 생성된 class를 실행한다.
+ * System.out 대신 class의 static field에 실행마다 만든 PrintStream을 넣어 출력을 따로 모으므로 전역 System.out을 바꾸지 않고,
+ * method 시작과 반복문의 back-edge마다 static field의 횟수를 줄이고, 일정 횟수마다 시간 제한을 확인해서
+ * 끝나지 않는 script도 제한 시간 뒤 중단된다. (class는 실행마다 새로 정의하므로 field를 다른 실행과 공유하지 않는다)
+ * 모으는 출력에도 크기 제한이 있어, 출력만 계속하는 script가 서버의 memory를 다 쓰지 못한다.
+ */
+public class GuardedRun {
+    private static final String OUT_FIELD = "$out";
+    private static final String PRINT_STREAM = "Ljava/io/PrintStream;";
+    private static final String BUDGET_FIELD = "$budget"; // 다음 시간 확인까지 남은 횟수
+    private static final int CHECK_INTERVAL = 1 << 16;
+    private static final ThreadLocal<Long> deadline = new ThreadLocal<>(); // 실행 중인 thread의 제한 시각 (System.nanoTime 기준)
+
+    /**
+     * class를 변환해 hidden class로 올리고 main을 실행한 뒤 출력을 반환한다.
+     * 제한 시간을 넘기거나 출력이 maxOutputBytes를 넘으면 IllegalStateException을 던진다.
+     */
+    public static String run(ClassCode classCode, long timeoutMillis, int maxOutputBytes) throws Exception {
+        HiddenScript script = HiddenScript.define(ClassFileEmitter.emit(instrument(classCode)));
+        LimitedBuffer buffer = new LimitedBuffer(maxOutputBytes);
+        PrintStream out = new PrintStream(buffer, true, StandardCharsets.UTF_8);
+        script.setStatic(OUT_FIELD, PrintStream.class, out);
+
+        deadline.set(System.nanoTime() + timeoutMillis * 1_000_000);
+        try {
+            script.runMain();
+        } finally {
+            deadline.remove();
+        }
+        out.flush();
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    // 정해진 크기까지만 받는 출력 buffer, PrintStream은 IOException을 삼키므로 unchecked 예외로 실행을 멈춘다
+    private static class LimitedBuffer extends ByteArrayOutputStream {
+        private final int limit;
+
+        LimitedBuffer(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            if (count + 1 > limit) throw new IllegalStateException("출력 크기 제한 초과");
+            super.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            if (len > limit - count) throw new IllegalStateException("출력 크기 제한 초과");
+            super.write(b, off, len);
+        }
+    }
+
+    // 생성된 code에서 호출한다, 다음 확인까지의 횟수를 반환
+    public static int checkDeadline() {
+        Long limit = deadline.get();
+        if (limit != null && System.nanoTime() - limit > 0) throw new IllegalStateException("실행 시간 제한 초과");
+        return CHECK_INTERVAL;
+    }
+
+    // System.out 읽기를 $out field로 바꾸고 시간 제한 확인을 넣은 복사본, 원래 method는 바꾸지 않는다
+    private static ClassCode instrument(ClassCode classCode) {
+        String owner = classCode.getName();
+        List<FieldCode> fields = new ArrayList<>(classCode.getFields());
+        fields.add(new FieldCode(OUT_FIELD, PRINT_STREAM));
+        fields.add(new FieldCode(BUDGET_FIELD, "I"));
+
+        List<MethodCode> methods = new ArrayList<>();
+        for (MethodCode original : classCode.getMethods()) {
+            MethodCode method = original.copy();
+            InsnList body = method.getBody();
+            HashSet<Label> seen = new HashSet<>(); // 지금까지 지나온 label, 이 label로 가는 분기는 back-edge
+            int guards = 0;
+            for (Insn insn = body.getFirst(); insn != null; insn = insn.getNext()) {
+                if (insn.isLabel()) {
+                    seen.add(insn.getLabel());
+                } else if (insn.getOp() == Opcode.GETSTATIC && insn.getOwner().equals("java/lang/System") && insn.getName().equals("out")) {
+                    body.insertBefore(insn, Insn.member(Opcode.GETSTATIC, owner, OUT_FIELD, PRINT_STREAM));
+                    Insn replaced = insn;
+                    insn = insn.getPrev();
+                    body.remove(replaced);
+                } else if (insn.getOp().isJump() && seen.contains(insn.getLabel())) {
+                    body.insertBefore(insn, guard(owner, guards++));
+                }
+            }
+            if (!method.getName().equals("<clinit>") && body.getFirst() != null) body.insertBefore(body.getFirst(), guard(owner, guards));
+            FrameSizeAnalyzer.analyze(method);
+            methods.add(method);
+        }
+        return new ClassCode(owner, fields, methods);
+    }
+
+    // if (--$budget <= 0) $budget = checkDeadline();
+    private static InsnList guard(String owner, int id) {
+        Label skip = new Label("Guard" + id);
+        return new InsnList(Insn.member(Opcode.GETSTATIC, owner, BUDGET_FIELD, "I"))
+                .add(Insn.ldc(1)).add(Insn.simple(Opcode.ISUB)).add(Insn.simple(Opcode.DUP))
+                .add(Insn.member(Opcode.PUTSTATIC, owner, BUDGET_FIELD, "I"))
+                .add(Insn.jump(Opcode.IFGT, skip))
+                .add(Insn.member(Opcode.INVOKESTATIC, "GuardedRun", "checkDeadline", "()I"))
+                .add(Insn.member(Opcode.PUTSTATIC, owner, BUDGET_FIELD, "I"))
+                .add(Insn.label(skip));
+    }
+}
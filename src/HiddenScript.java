@@ -0,0 +1,98 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 컴파일된 class 바이트를 hidden class로 정의하고 main과 함수를 MethodHandle로 호출한다.
+ * 이름으로 등록되는 class가 아니므로 같은 이름(Test)의 class를 몇 번이든 올릴 수 있고,
+ * 이 객체를 더 이상 참조하지 않으면 class도 unload되어 script를 계속 실행해도 Metaspace가 쌓이지 않는다.
+ * 찾은 MethodHandle은 저장해 두고 다시 쓴다.
+ */
+public class HiddenScript {
+    private static final MethodType MAIN_TYPE = MethodType.methodType(void.class, String[].class);
+
+    private final MethodHandles.Lookup lookup; // hidden class에 대한 lookup
+    private volatile MethodHandle main; // 처음 실행할 때 찾는다 (main이 없는 class도 있다)
+    private final ConcurrentHashMap<String, MethodHandle> functions = new ConcurrentHashMap<>(); // "이름/인자 수" -> 인자를 int[]로 받는 handle
+
+    private HiddenScript(MethodHandles.Lookup lookup) {
+        this.lookup = lookup;
+    }
+
+    /**
+     * class 바이트를 hidden class로 정의하고 초기화한다. 생성된 class는 이 class와 같은 (이름 없는) package에 있어야 한다.
+     */
+    public static HiddenScript define(byte[] classBytes) throws IllegalAccessException {
+        return new HiddenScript(MethodHandles.lookup().defineHiddenClass(classBytes, true));
+    }
+
+    public Class<?> getScriptClass() {
+        return lookup.lookupClass();
+    }
+
+    // main 실행, 출력은 System.out으로 바로 나간다
+    public void runMain() {
+        try {
+            if (main == null) main = findStatic("main", MAIN_TYPE);
+            main.invokeExact(new String[0]);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e); // 생성된 code는 checked 예외를 던지지 않는다
+        }
+    }
+
+    /**
+     * 함수 name(인자 int numOfArgs개)의 handle. 인자를 int[] 하나로 받고 int를 반환한다.
+     */
+    public MethodHandle function(String name, int numOfArgs) {
+        String key = name + "/" + numOfArgs;
+        MethodHandle handle = functions.get(key);
+        if (handle != null) return handle;
+        handle = directFunction(name, numOfArgs).asSpreader(int[].class, numOfArgs);
+        MethodHandle previous = functions.putIfAbsent(key, handle);
+        return previous != null ? previous : handle;
+    }
+
+    /**
+     * 함수 name의 static method를 그대로 가리키는 handle, type은 (I...)I이다.
+     * 배열을 만들지 않으므로 호출 빈도가 높은 곳에서 invokeExact로 부른다.
+     */
+    public MethodHandle directFunction(String name, int numOfArgs) {
+        try {
+            return findStatic(name, MethodType.methodType(int.class, Collections.nCopies(numOfArgs, int.class)));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("정의되지 않은 함수: " + name + "/" + numOfArgs, e);
+        }
+    }
+
+    // static field에 값 넣기
+    public void setStatic(String name, Class<?> type, Object value) throws ReflectiveOperationException {
+        try {
+            lookup.findStaticSetter(lookup.lookupClass(), name, type).invoke(value);
+        } catch (ReflectiveOperationException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // 이름과 type으로 static method handle 찾기
+    public MethodHandle findStatic(String name, MethodType type) throws ReflectiveOperationException {
+        return lookup.findStatic(lookup.lookupClass(), name, type);
+    }
+
+    // 함수 호출
+    public int call(String name, int... args) {
+        MethodHandle handle = function(name, args.length);
+        try {
+            return (int) handle.invokeExact(args);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
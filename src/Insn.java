@@ -0,0 +1,278 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+
+/**
+ * instruction list IR의 명령어 하나.
+ * opcode가 null이면 label 위치를 나타내는 가상 명령어이다.
+ */
+public class Insn {
+    private Opcode op; // 명령어 (label이면 null)
+    private int operand; // 지역 변수 index 또는 정수 상수
+    private int increment; // iinc의 증가량
+    private String constant; // 문자열 상수
+    private String owner; // method, field 참조의 class
+    private String name; // method, field 이름
+    private String descriptor; // method, field descriptor 또는 anewarray의 원소 type
+    private Label label; // 분기 대상, label 명령어이면 자기 자신의 label
+
+    Insn prev; // InsnList 연결
+    Insn next;
+
+    private Insn(Opcode op) {
+        this.op = op;
+    }
+
+    // operand가 없는 명령어 (iadd, ireturn ...)
+    public static Insn simple(Opcode op) {
+        return new Insn(op);
+    }
+
+    // 지역 변수 명령어 (iload, istore ...)
+    public static Insn var(Opcode op, int index) {
+        Insn insn = new Insn(op);
+        insn.operand = index;
+        return insn;
+    }
+
+    // 정수 상수 load
+    public static Insn ldc(int value) {
+        Insn insn = new Insn(Opcode.LDC);
+        insn.operand = value;
+        return insn;
+    }
+
+    // 문자열 상수 load, 따옴표는 포함하지 않는다
+    public static Insn ldc(String value) {
+        Insn insn = new Insn(Opcode.LDC);
+        insn.constant = value;
+        return insn;
+    }
+
+    // 지역 변수를 상수만큼 증가
+    public static Insn iinc(int index, int increment) {
+        Insn insn = new Insn(Opcode.IINC);
+        insn.operand = index;
+        insn.increment = increment;
+        return insn;
+    }
+
+    // 작은 정수 상수 load (bipush, sipush), 배열 생성 (newarray, operand는 원소 type 코드)
+    public static Insn push(Opcode op, int value) {
+        Insn insn = new Insn(op);
+        insn.operand = value;
+        return insn;
+    }
+
+    // 분기 명령어, 대상 label은 나중에 지정할 수 있다
+    public static Insn jump(Opcode op, Label target) {
+        Insn insn = new Insn(op);
+        insn.label = target;
+        return insn;
+    }
+
+    // label 위치
+    public static Insn label(Label label) {
+        Insn insn = new Insn(null);
+        insn.label = label;
+        return insn;
+    }
+
+    // method 호출, field 접근 명령어
+    public static Insn member(Opcode op, String owner, String name, String descriptor) {
+        Insn insn = new Insn(op);
+        insn.owner = owner;
+        insn.name = name;
+        insn.descriptor = descriptor;
+        return insn;
+    }
+
+    // 참조 배열 생성 (anewarray), type은 원소의 internal name 또는 배열 descriptor
+    public static Insn type(Opcode op, String type) {
+        Insn insn = new Insn(op);
+        insn.descriptor = type;
+        return insn;
+    }
+
+    // 같은 내용의 새 명령어 (목록 연결은 복사하지 않는다)
+    public Insn copy() {
+        Insn insn = new Insn(op);
+        insn.operand = operand;
+        insn.increment = increment;
+        insn.constant = constant;
+        insn.owner = owner;
+        insn.name = name;
+        insn.descriptor = descriptor;
+        insn.label = label;
+        return insn;
+    }
+
+    // 빌드 결과 파일에 기록, label은 이름으로 저장한다
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeShort(op == null ? -1 : op.ordinal());
+        out.writeInt(operand);
+        out.writeInt(increment);
+        writeNullable(out, constant);
+        writeNullable(out, owner);
+        writeNullable(out, name);
+        writeNullable(out, descriptor);
+        writeNullable(out, label == null ? null : label.getName());
+    }
+
+    // writeTo로 기록한 명령어 읽기, 같은 이름의 label은 같은 객체로 연결한다
+    static Insn readFrom(DataInputStream in, HashMap<String, Label> labels) throws IOException {
+        int ordinal = in.readShort();
+        Insn insn = new Insn(ordinal < 0 ? null : Opcode.values()[ordinal]);
+        insn.operand = in.readInt();
+        insn.increment = in.readInt();
+        insn.constant = readNullable(in);
+        insn.owner = readNullable(in);
+        insn.name = readNullable(in);
+        insn.descriptor = readNullable(in);
+        String labelName = readNullable(in);
+        if (labelName != null) insn.label = labels.computeIfAbsent(labelName, Label::new);
+        return insn;
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    public Opcode getOp() {
+        return op;
+    }
+
+    public boolean isLabel() {
+        return op == null;
+    }
+
+    public int getOperand() {
+        return operand;
+    }
+
+    public int getIncrement() {
+        return increment;
+    }
+
+    public String getConstant() {
+        return constant;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescriptor() {
+        return descriptor;
+    }
+
+    public Label getLabel() {
+        return label;
+    }
+
+    public void setLabel(Label label) {
+        this.label = label;
+    }
+
+    public Insn getNext() {
+        return next;
+    }
+
+    public Insn getPrev() {
+        return prev;
+    }
+
+    // 실행 후 operand stack 크기 변화
+    public int getStackEffect() {
+        if (op == null) return 0;
+        return switch (op) {
+            case INVOKESTATIC -> returnSize(descriptor) - argumentSize(descriptor);
+            case INVOKEVIRTUAL, INVOKESPECIAL -> returnSize(descriptor) - argumentSize(descriptor) - 1;
+            default -> op.getStackEffect();
+        };
+    }
+
+    // class 파일에 기록될 때의 바이트 수 (ldc는 constant pool index가 1바이트라고 가정)
+    public int getSize() {
+        if (op == null) return 0;
+        return switch (op) {
+            case ILOAD, ISTORE, ALOAD, ASTORE -> operand <= 3 ? 1 : operand <= 0xff ? 2 : 4;
+            case LDC, BIPUSH, NEWARRAY -> 2;
+            case IINC -> operand <= 0xff && increment >= Byte.MIN_VALUE && increment <= Byte.MAX_VALUE ? 3 : 6;
+            case SIPUSH, ANEWARRAY, GETSTATIC, PUTSTATIC, INVOKESTATIC, INVOKEVIRTUAL, INVOKESPECIAL -> 3;
+            default -> op.isJump() ? 3 : 1;
+        };
+    }
+
+    // method descriptor의 인자가 차지하는 stack 크기
+    public static int argumentSize(String descriptor) {
+        int size = 0;
+        int i = 1; // '(' 다음부터
+        while (descriptor.charAt(i) != ')') {
+            char c = descriptor.charAt(i);
+            if (c == '[') {
+                while (descriptor.charAt(i) == '[') ++i; // 배열은 참조 하나
+                if (descriptor.charAt(i) == 'L') i = descriptor.indexOf(';', i);
+                size += 1;
+            } else if (c == 'L') {
+                i = descriptor.indexOf(';', i);
+                size += 1;
+            } else {
+                size += (c == 'J' || c == 'D') ? 2 : 1;
+            }
+            ++i;
+        }
+        return size;
+    }
+
+    // method descriptor의 return 값이 차지하는 stack 크기
+    private static int returnSize(String descriptor) {
+        char c = descriptor.charAt(descriptor.indexOf(')') + 1);
+        if (c == 'V') return 0;
+        return (c == 'J' || c == 'D') ? 2 : 1;
+    }
+
+    // 문자열 상수를 Jasmin의 따옴표 안에 쓸 수 있게 escape 한다
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder();
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '\n' -> escaped.append("\\n");
+                case '\t' -> escaped.append("\\t");
+                case '\r' -> escaped.append("\\r");
+                case '\b' -> escaped.append("\\b");
+                case '\f' -> escaped.append("\\f");
+                case '\\' -> escaped.append("\\\\");
+                case '"' -> escaped.append("\\\"");
+                default -> escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    // Jasmin 표기로 변환
+    @Override
+    public String toString() {
+        if (op == null) return label.getName() + ":";
+        return switch (op) {
+            case ILOAD, ISTORE, ALOAD, ASTORE, BIPUSH, SIPUSH -> op.getMnemonic() + " " + operand;
+            case IINC -> op.getMnemonic() + " " + operand + " " + increment;
+            case LDC -> constant != null ? "ldc \"" + escape(constant) + "\"" : "ldc " + operand;
+            case NEWARRAY -> op.getMnemonic() + (operand == 4 ? " boolean" : " int"); // T_BOOLEAN, T_INT
+            case ANEWARRAY -> op.getMnemonic() + " " + descriptor;
+            case GETSTATIC, PUTSTATIC -> op.getMnemonic() + " " + owner + "/" + name + " " + descriptor;
+            case INVOKESTATIC, INVOKEVIRTUAL, INVOKESPECIAL -> op.getMnemonic() + " " + owner + "/" + name + descriptor;
+            default -> op.isJump() ? op.getMnemonic() + " " + label : op.getMnemonic();
+        };
+    }
+}
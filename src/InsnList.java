@@ -0,0 +1,123 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 명령어를 이중 연결 리스트로 보관하는 IR.
+ * 자식 노드의 명령어 목록을 복사 없이 O(1)에 이어 붙일 수 있다.
+ */
+public class InsnList implements Iterable<Insn> {
+    private Insn first;
+    private Insn last;
+    private int size;
+
+    public InsnList() {
+    }
+
+    public InsnList(Insn insn) {
+        add(insn);
+    }
+
+    public Insn getFirst() {
+        return first;
+    }
+
+    public Insn getLast() {
+        return last;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // 끝에 명령어 추가
+    public InsnList add(Insn insn) {
+        insn.prev = last;
+        insn.next = null;
+        if (last == null) first = insn;
+        else last.next = insn;
+        last = insn;
+        ++size;
+        return this;
+    }
+
+    // 다른 목록의 명령어를 모두 옮겨 붙인다, other는 빈 목록이 된다
+    public InsnList addAll(InsnList other) {
+        if (other == null || other.isEmpty() || other == this) return this;
+        if (last == null) {
+            first = other.first;
+        } else {
+            last.next = other.first;
+            other.first.prev = last;
+        }
+        last = other.last;
+        size += other.size;
+        other.first = other.last = null;
+        other.size = 0;
+        return this;
+    }
+
+    // 명령어 제거
+    public void remove(Insn insn) {
+        if (insn.prev == null) first = insn.next;
+        else insn.prev.next = insn.next;
+        if (insn.next == null) last = insn.prev;
+        else insn.next.prev = insn.prev;
+        insn.prev = insn.next = null;
+        --size;
+    }
+
+    // location 앞에 명령어 삽입
+    public void insertBefore(Insn location, Insn insn) {
+        insn.next = location;
+        insn.prev = location.prev;
+        if (location.prev == null) first = insn;
+        else location.prev.next = insn;
+        location.prev = insn;
+        ++size;
+    }
+
+    // location 앞에 다른 목록의 명령어를 모두 옮겨 넣는다, other는 빈 목록이 된다
+    public void insertBefore(Insn location, InsnList other) {
+        if (other.isEmpty()) return;
+        other.last.next = location;
+        other.first.prev = location.prev;
+        if (location.prev == null) first = other.first;
+        else location.prev.next = other.first;
+        location.prev = other.last;
+        size += other.size;
+        other.first = other.last = null;
+        other.size = 0;
+    }
+
+    @Override
+    public Iterator<Insn> iterator() {
+        return new Iterator<>() {
+            private Insn cursor = first;
+
+            @Override
+            public boolean hasNext() {
+                return cursor != null;
+            }
+
+            @Override
+            public Insn next() {
+                if (cursor == null) throw new NoSuchElementException();
+                Insn current = cursor;
+                cursor = cursor.next;
+                return current;
+            }
+        };
+    }
+
+    // Jasmin 텍스트로 변환 (한 줄에 명령어 하나)
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (Insn insn : this) text.append(insn).append('\n');
+        return text.toString();
+    }
+}
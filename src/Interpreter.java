@@ -0,0 +1,535 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * class를 만들지 않고 바로 실행하는 interpreter.
+ * parse tree를 먼저 작은 AST로 바꾸면서 변수 이름을 compiler와 같은 규칙(인자 먼저, 처음 할당된 순서대로)의
+ * 지역 변수 번호로 바꿔 두고, 실행할 때는 함수 호출마다 int[] frame 하나만 만든다. 값은 모두 int로 다루며 boxing하지 않는다.
+ * 짧은 script는 code 생성, class loading 없이 바로 결과를 낼 수 있다.
+ *
+ * tiered 실행을 켜면 함수 호출 수와 while 반복 수(back-edge)를 센다. 어떤 함수가 기준을 넘으면
+ * background thread에서 {@link tinyPythonCompiler}로 그 함수(와 호출하는 함수들)를 hidden class로 컴파일하고,
+ * 컴파일이 끝난 뒤의 호출은 컴파일된 method로 넘긴다. 이미 실행 중인 호출과 반복문은 끝까지 interpreter로 실행한다.
+ */
+public class Interpreter {
+    // statement 실행 결과
+    private static final int NORMAL = 0;
+    private static final int BREAK = 1;
+    private static final int CONTINUE = 2;
+    private static final int RETURN = 3;
+    private static final int TAIL_CALL = 4; // 자기 자신 꼬리 호출, 인자를 바꾼 뒤 body를 처음부터 다시 실행
+
+    private final HashMap<String, Function> functions = new HashMap<>(); // 이름/인자 수 -> 함수
+    private static final String COMPILED_CLASS = "TieredCode"; // hidden class 이름
+    private final List<While> loops = new ArrayList<>(); // 반복 횟수 보고용
+    private final Function main;
+    private final tinyPythonParser.ProgramContext program;
+    private PrintStream out = System.out;
+
+    // tiered 실행 설정, threshold가 0이면 사용하지 않는다
+    private int threshold = 0;
+    private CompilerOptions compilerOptions;
+    private ExecutorService compileThread;
+    private ClassCode compiledProgram; // compile thread에서만 사용
+
+    // 함수 하나, frame의 마지막 칸에는 return 값을 둔다
+    private static class Function {
+        final String name;
+        final int numOfArgs;
+        int frameSize;
+        Stmt body;
+        int invocations = 0; // 호출 수
+        int backEdges = 0; // 함수 안의 반복 수 (while, 꼬리 호출)
+        boolean hot = false; // 기준을 넘어 컴파일된 code를 쓰기로 한 함수
+        volatile MethodHandle compiled; // (int[])int 형태로 인자를 펼쳐 호출하는 handle, compile thread가 채운다
+        volatile boolean compileFailed = false; // 검증 실패 등으로 컴파일된 code를 쓸 수 없음
+
+        Function(String name, int numOfArgs) {
+            this.name = name;
+            this.numOfArgs = numOfArgs;
+        }
+    }
+
+    public Interpreter(tinyPythonParser.ProgramContext program) {
+        this.program = program;
+        tinyPythonParser.File_inputContext fileInput = program.file_input();
+        List<tinyPythonParser.Def_stmtContext> defs = fileInput.defs() == null ? List.of() : fileInput.defs().def_stmt();
+
+        // 함수끼리 서로 호출할 수 있으므로 이름을 먼저 모두 등록한다
+        for (tinyPythonParser.Def_stmtContext def : defs) {
+            Function function = new Function(def.NAME().getText(), def.args().NAME().size());
+            functions.put(keyOf(function.name, function.numOfArgs), function);
+        }
+        for (tinyPythonParser.Def_stmtContext def : defs) {
+            Function function = functions.get(keyOf(def.NAME().getText(), def.args().NAME().size()));
+            Builder builder = new Builder(function);
+            for (int i = 0; i < def.args().NAME().size(); ++i) builder.define(def.args().NAME(i).getText());
+            function.body = builder.suite(def.suite());
+            function.frameSize = builder.symbols.size() + 1;
+        }
+
+        main = new Function("main", 0);
+        Builder builder = new Builder(main);
+        builder.define("args"); // compiler의 main과 같이 0번은 인자 배열 자리
+        main.body = builder.block(fileInput.stmt());
+        main.frameSize = builder.symbols.size() + 1;
+    }
+
+    // print 출력 위치 변경
+    public Interpreter setOut(PrintStream out) {
+        this.out = out;
+        return this;
+    }
+
+    /**
+     * tiered 실행 사용. 호출 수와 반복 수의 합이 threshold를 넘는 함수는 컴파일된 code로 바꾼다.
+     */
+    public Interpreter enableTiering(int threshold, CompilerOptions options) {
+        this.threshold = threshold;
+        this.compilerOptions = options;
+        return this;
+    }
+
+    public void run() {
+        try {
+            call(main, new int[main.frameSize]);
+        } finally {
+            out.flush();
+            if (compileThread != null) compileThread.shutdownNow();
+        }
+    }
+
+    private int call(Function function, int[] frame) {
+        if (threshold > 0) {
+            ++function.invocations;
+            checkHot(function);
+        }
+        while (function.body.exec(frame) == TAIL_CALL) { // compiler처럼 꼬리 호출은 반복으로 처리해 stack을 쓰지 않는다
+            if (threshold > 0) ++function.backEdges;
+        }
+        return frame[frame.length - 1];
+    }
+
+    // 기준을 넘은 함수는 background thread에 컴파일을 요청한다
+    private void checkHot(Function function) {
+        if (function == main || function.hot || function.invocations + function.backEdges < threshold) return;
+        function.hot = true;
+        if (compileThread == null) {
+            compileThread = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "tiered-compiler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        compileThread.execute(() -> compileFunction(function));
+    }
+
+    /**
+     * compile thread에서 실행된다. 처음 한 번 모든 함수 정의를 컴파일해 두고,
+     * 요청된 함수와 그 함수가 호출하는 함수만 모아 hidden class 하나로 만든다.
+     * 한 함수를 검증할 수 없어도 다른 함수의 컴파일에는 영향이 없고, 그 함수는 계속 interpreter로 실행한다.
+     */
+    private void compileFunction(Function function) {
+        try {
+            if (compiledProgram == null) {
+                tinyPythonCompiler compiler = new tinyPythonCompiler(compilerOptions);
+                compiler.setLog(new PrintStream(OutputStream.nullOutputStream()));
+                compiledProgram = compiler.compile(program, COMPILED_CLASS);
+            }
+            String descriptor = "(" + "I".repeat(function.numOfArgs) + ")I";
+            byte[] classBytes = ClassFileEmitter.emit(compiledProgram.subset(List.of(function.name + descriptor, "<clinit>()V")));
+            // 검증과 초기화도 background에서 끝낸다
+            function.compiled = HiddenScript.define(classBytes).function(function.name, function.numOfArgs);
+        } catch (Throwable e) {
+            function.compileFailed = true;
+        }
+    }
+
+    // 함수별 호출 수, 반복 수와 컴파일 여부
+    public LinkedHashMap<String, String> getProfile() {
+        LinkedHashMap<String, String> profile = new LinkedHashMap<>();
+        for (Function function : functions.values()) {
+            profile.put(function.name + "/" + function.numOfArgs, "calls " + function.invocations + ", back-edges " + function.backEdges
+                    + (function.compiled != null ? ", compiled" : function.compileFailed ? ", compile failed" : ""));
+        }
+        for (int i = 0; i < loops.size(); ++i) {
+            profile.put("while#" + i + " in " + loops.get(i).owner.name, "iterations " + loops.get(i).iterations);
+        }
+        return profile;
+    }
+
+    private static String keyOf(String name, int numOfArgs) {
+        return name + "/" + numOfArgs;
+    }
+
+    /**
+     * 함수 body 하나를 AST로 바꾼다. symbol table 규칙은 compiler와 같다.
+     */
+    private class Builder {
+        final HashMap<String, Integer> symbols = new HashMap<>();
+        final Function function; // 변환 중인 함수
+        int loopDepth = 0; // 변환 중인 위치를 감싼 while 수
+
+        Builder(Function function) {
+            this.function = function;
+        }
+
+        int define(String name) {
+            return symbols.computeIfAbsent(name, n -> symbols.size());
+        }
+
+        Stmt suite(tinyPythonParser.SuiteContext ctx) {
+            if (ctx.simple_stmt() != null) return simple(ctx.simple_stmt());
+            return block(ctx.stmt());
+        }
+
+        Stmt block(List<tinyPythonParser.StmtContext> stmts) {
+            List<Stmt> body = new ArrayList<>();
+            for (tinyPythonParser.StmtContext stmt : stmts) body.add(stmt(stmt));
+            return new Block(body.toArray(new Stmt[0]));
+        }
+
+        Stmt stmt(tinyPythonParser.StmtContext ctx) {
+            if (ctx.simple_stmt() != null) return simple(ctx.simple_stmt());
+            tinyPythonParser.Compound_stmtContext compound = ctx.compound_stmt();
+            if (compound.if_stmt() != null) return ifStmt(compound.if_stmt());
+            tinyPythonParser.While_stmtContext loop = compound.while_stmt();
+            Test condition = test(loop.test());
+            ++loopDepth;
+            Stmt body = suite(loop.suite());
+            --loopDepth;
+            While node = new While(function, condition, body);
+            loops.add(node);
+            return node;
+        }
+
+        Stmt simple(tinyPythonParser.Simple_stmtContext ctx) {
+            tinyPythonParser.Small_stmtContext small = ctx.small_stmt();
+            if (small.assignment_stmt() != null) {
+                Expr value = expr(small.assignment_stmt().expr()); // 오른쪽을 먼저 처리한 뒤 변수를 등록한다
+                return new Assign(define(small.assignment_stmt().NAME().getText()), value);
+            }
+            if (small.print_stmt() != null) {
+                tinyPythonParser.Print_argContext arg = small.print_stmt().print_arg();
+                if (arg.expr() != null) return new PrintInt(expr(arg.expr()));
+                return new PrintString(tinyPythonCompiler.stringValue(arg.STRING().getText()));
+            }
+            if (small.return_stmt() != null) {
+                tinyPythonParser.ExprContext value = small.return_stmt().expr();
+                if (value == null) return new Return(null);
+                Expr result = expr(value);
+                if (result instanceof Call call && call.callee == function) return new TailCall(call.args);
+                return new Return(result);
+            }
+            if (loopDepth == 0) return new Block(new Stmt[0]); // 반복문 밖의 break, continue는 compiler처럼 무시한다
+            return small.flow_stmt().break_stmt() != null ? Flow.BREAK_STMT : Flow.CONTINUE_STMT;
+        }
+
+        Stmt ifStmt(tinyPythonParser.If_stmtContext ctx) {
+            Test[] tests = new Test[ctx.test().size()];
+            Stmt[] suites = new Stmt[ctx.suite().size()]; // else가 있으면 test보다 하나 많다
+            for (int i = 0; i < ctx.suite().size(); ++i) {
+                if (i < tests.length) tests[i] = test(ctx.test(i));
+                suites[i] = suite(ctx.suite(i));
+            }
+            return new If(tests, suites);
+        }
+
+        Test test(tinyPythonParser.TestContext ctx) {
+            return new Test(ctx.comp_op().getText(), expr(ctx.expr(0)), expr(ctx.expr(1)));
+        }
+
+        Expr expr(tinyPythonParser.ExprContext ctx) {
+            if (ctx.NUMBER() != null) return new Const(Integer.parseInt(ctx.NUMBER().getText()));
+            if (ctx.NAME() != null) {
+                String ident = ctx.NAME().getText();
+                if (ctx.opt_paren().CLOSE_PAREN() != null) {
+                    List<tinyPythonParser.ExprContext> argExprs = ctx.opt_paren().expr();
+                    Function callee = functions.get(keyOf(ident, argExprs.size()));
+                    if (callee == null) throw new IllegalStateException("undefined function " + ident);
+                    Expr[] args = new Expr[argExprs.size()];
+                    for (int i = 0; i < args.length; ++i) args[i] = expr(argExprs.get(i));
+                    return new Call(callee, args);
+                }
+                Integer index = symbols.get(ident);
+                if (index == null) throw new IllegalStateException("undefined identifier " + ident);
+                return new Load(index);
+            }
+            if (ctx.expr().size() == 1) return expr(ctx.expr(0)); // 괄호
+            Expr left = expr(ctx.expr(0));
+            Expr right = expr(ctx.expr(1));
+            return ctx.getChild(1).getText().equals("+") ? new Add(left, right) : new Sub(left, right);
+        }
+    }
+
+    // ===== statement =====
+
+    private abstract static class Stmt {
+        abstract int exec(int[] frame);
+    }
+
+    private static class Block extends Stmt {
+        final Stmt[] body;
+
+        Block(Stmt[] body) {
+            this.body = body;
+        }
+
+        @Override
+        int exec(int[] frame) {
+            for (Stmt stmt : body) {
+                int status = stmt.exec(frame);
+                if (status != NORMAL) return status;
+            }
+            return NORMAL;
+        }
+    }
+
+    private static class Assign extends Stmt {
+        final int index;
+        final Expr value;
+
+        Assign(int index, Expr value) {
+            this.index = index;
+            this.value = value;
+        }
+
+        @Override
+        int exec(int[] frame) {
+            frame[index] = value.eval(frame);
+            return NORMAL;
+        }
+    }
+
+    private class PrintInt extends Stmt {
+        final Expr value;
+
+        PrintInt(Expr value) {
+            this.value = value;
+        }
+
+        @Override
+        int exec(int[] frame) {
+            out.println(value.eval(frame));
+            return NORMAL;
+        }
+    }
+
+    private class PrintString extends Stmt {
+        final String value;
+
+        PrintString(String value) {
+            this.value = value;
+        }
+
+        @Override
+        int exec(int[] frame) {
+            out.println(value);
+            return NORMAL;
+        }
+    }
+
+    private static class Return extends Stmt {
+        final Expr value; // 값 없는 return이면 null
+
+        Return(Expr value) {
+            this.value = value;
+        }
+
+        @Override
+        int exec(int[] frame) {
+            if (value != null) frame[frame.length - 1] = value.eval(frame);
+            return RETURN;
+        }
+    }
+
+    private static class TailCall extends Stmt {
+        final Expr[] args;
+
+        TailCall(Expr[] args) {
+            this.args = args;
+        }
+
+        @Override
+        int exec(int[] frame) {
+            // 모든 인자를 계산한 뒤에 parameter 자리에 저장한다
+            int[] values = new int[args.length];
+            for (int i = 0; i < args.length; ++i) values[i] = args[i].eval(frame);
+            System.arraycopy(values, 0, frame, 0, values.length);
+            return TAIL_CALL;
+        }
+    }
+
+    private static class Flow extends Stmt {
+        static final Flow BREAK_STMT = new Flow(BREAK);
+        static final Flow CONTINUE_STMT = new Flow(CONTINUE);
+        final int status;
+
+        Flow(int status) {
+            this.status = status;
+        }
+
+        @Override
+        int exec(int[] frame) {
+            return status;
+        }
+    }
+
+    private static class If extends Stmt {
+        final Test[] tests;
+        final Stmt[] suites;
+
+        If(Test[] tests, Stmt[] suites) {
+            this.tests = tests;
+            this.suites = suites;
+        }
+
+        @Override
+        int exec(int[] frame) {
+            for (int i = 0; i < tests.length; ++i) {
+                if (tests[i].eval(frame)) return suites[i].exec(frame);
+            }
+            return suites.length > tests.length ? suites[tests.length].exec(frame) : NORMAL; // else
+        }
+    }
+
+    private class While extends Stmt {
+        final Function owner; // 반복문이 들어 있는 함수
+        final Test test;
+        final Stmt body;
+        int iterations = 0;
+
+        While(Function owner, Test test, Stmt body) {
+            this.owner = owner;
+            this.test = test;
+            this.body = body;
+        }
+
+        @Override
+        int exec(int[] frame) {
+            while (test.eval(frame)) {
+                if (threshold > 0) {
+                    ++iterations;
+                    ++owner.backEdges;
+                }
+                int status = body.exec(frame);
+                if (status == BREAK) break;
+                if (status == RETURN || status == TAIL_CALL) return status;
+            }
+            return NORMAL;
+        }
+    }
+
+    // ===== expression =====
+
+    private static class Test {
+        final String op;
+        final Expr left;
+        final Expr right;
+
+        Test(String op, Expr left, Expr right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        boolean eval(int[] frame) {
+            return tinyPythonCompiler.compare(op, left.eval(frame), right.eval(frame));
+        }
+    }
+
+    private abstract static class Expr {
+        abstract int eval(int[] frame);
+    }
+
+    private static class Const extends Expr {
+        final int value;
+
+        Const(int value) {
+            this.value = value;
+        }
+
+        @Override
+        int eval(int[] frame) {
+            return value;
+        }
+    }
+
+    private static class Load extends Expr {
+        final int index;
+
+        Load(int index) {
+            this.index = index;
+        }
+
+        @Override
+        int eval(int[] frame) {
+            return frame[index];
+        }
+    }
+
+    private static class Add extends Expr {
+        final Expr left;
+        final Expr right;
+
+        Add(Expr left, Expr right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int eval(int[] frame) {
+            return left.eval(frame) + right.eval(frame);
+        }
+    }
+
+    private static class Sub extends Expr {
+        final Expr left;
+        final Expr right;
+
+        Sub(Expr left, Expr right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int eval(int[] frame) {
+            return left.eval(frame) - right.eval(frame);
+        }
+    }
+
+    private class Call extends Expr {
+        final Function callee;
+        final Expr[] args;
+
+        Call(Function callee, Expr[] args) {
+            this.callee = callee;
+            this.args = args;
+        }
+
+        @Override
+        int eval(int[] frame) {
+            if (callee.compiled != null) {
+                int[] values = new int[args.length];
+                for (int i = 0; i < args.length; ++i) values[i] = args[i].eval(frame);
+                try {
+                    return (int) callee.compiled.invokeExact(values);
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            int[] calleeFrame = new int[callee.frameSize];
+            for (int i = 0; i < args.length; ++i) calleeFrame[i] = args[i].eval(frame);
+            return call(callee, calleeFrame);
+        }
+    }
+}
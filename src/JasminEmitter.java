@@ -0,0 +1,65 @@
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * 컴파일 결과를 Jasmin 텍스트로 출력하는 backend.
+ * 생성된 코드를 눈으로 확인하기 위한 디버그 용도로 사용한다.
+ * Writer로 출력하면 method를 하나씩, 명령어를 한 줄씩 바로 쓰므로 전체 텍스트를 메모리에 만들지 않는다.
+ */
+public class JasminEmitter {
+
+    public static String emit(ClassCode classCode) {
+        StringWriter out = new StringWriter();
+        try {
+            emit(classCode, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringWriter는 실패하지 않는다
+        }
+        return out.toString();
+    }
+
+    public static void emit(ClassCode classCode, Writer out) throws IOException {
+        // 기본 Java byte code 시작 부분
+        out.write(".class public " + classCode.getName() + "\n");
+        out.write(".super java/lang/Object\n\n");
+        for (FieldCode field : classCode.getFields()) {
+            out.write(".field public static " + field.getName() + " " + field.getDescriptor() + "\n");
+        }
+        if (!classCode.getFields().isEmpty()) out.write("\n");
+        out.write("; standard initializer\n");
+        out.write(".method public <init>()V\n");
+        out.write("aload_0\n");
+        out.write("invokenonvirtual java/lang/Object/<init>()V\n");
+        out.write("return\n");
+        out.write(".end method\n\n");
+
+        for (MethodCode method : classCode.getMethods()) {
+            emitMethod(method, out);
+        }
+        out.flush();
+    }
+
+    // method 하나를 Jasmin 형식으로 변환
+    public static String emitMethod(MethodCode method) {
+        StringWriter out = new StringWriter();
+        try {
+            emitMethod(method, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    public static void emitMethod(MethodCode method, Writer out) throws IOException {
+        out.write(".method public static " + method.getName() + method.getDescriptor() + "\n");
+        out.write("    .limit stack " + method.getMaxStack() + "\n");
+        out.write("    .limit locals " + method.getMaxLocals() + "\n");
+        for (Insn insn : method.getBody()) {
+            out.write(insn.toString());
+            out.write('\n');
+        }
+        out.write(".end method\n\n");
+    }
+}
@@ -0,0 +1,20 @@
+/**
+ * 분기 대상 위치를 나타내는 label.
+ * 이름은 Jasmin 출력에 사용되며, 같은 method 안에서 겹치지 않아야 한다.
+ */
+public class Label {
+    private final String name;
+
+    public Label(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -1,16 +1,142 @@
 import org.antlr.v4.runtime.CharStreams;
-import org.antlr.v4.runtime.CommonTokenStream;
-import org.antlr.v4.runtime.tree.ParseTree;
-import org.antlr.v4.runtime.tree.ParseTreeWalker;
+
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 public class Main {
+    private static final String CLASS_NAME = "Test"; // 단일 파일 모드에서 만드는 class 이름
+    private static final Path CACHE_DIR = Path.of(".tpycache");
+    private static final long CACHE_MAX_BYTES = 64L * 1024 * 1024;
+    private static final int TIER_UP_THRESHOLD = 1000; // 호출 수와 반복 수의 합이 이만큼 되면 컴파일
+
+    // 사용법: Main [-jasmin] [-run] [-O0] [-memo] [-report] [-cache] [-incremental] [-interpret | -tiered | -repl] [-server | -remote | -batch] [소스 파일...]
+    //   -jasmin : class 파일 대신 디버그용 Jasmin 텍스트(Test.j)를 출력
+    //   -run    : 컴파일한 class를 같은 JVM에서 hidden class로 올려 바로 실행
+    //   -O0     : 모든 최적화를 끄고 변환
+    //   -memo   : 순수한 재귀 함수의 결과를 cache에 저장 (-O0 뒤에 주면 함께 사용 가능)
+    //   -report : method별 peephole 최적화로 줄어든 바이트 수와 parse 단계별 횟수 출력
+    //   -server : 컴파일 서버로 계속 실행하며 localhost socket으로 요청을 받는다
+    //   -remote : 실행 중인 컴파일 서버에 소스를 보내 컴파일(-run이면 실행)한다
+    //   -batch  : 주어진 파일과 디렉터리의 .tpy를 병렬로 컴파일, 각각 파일 이름을 딴 class로 저장
+    //   -cache  : 컴파일 결과를 .tpycache 디렉터리에 보관하고, 같은 소스와 옵션이면 다시 쓴다
+    //   -incremental : 이전 빌드(Test.ir)와 비교해 바뀐 함수와 main body만 다시 변환
+    //   -interpret : class를 만들지 않고 interpreter로 바로 실행
+    //   -tiered : interpreter로 시작하고 자주 호출되는 함수는 background에서 컴파일해 바꿔 실행
+    //   -repl   : 입력한 statement와 함수 정의를 하나씩 컴파일해 바로 실행하는 대화형 모드
     public static void main(String[] args) throws Exception {
-        tinyPythonLexer lexer = new tinyPythonLexer(CharStreams.fromFileName("Test.tpy"));
-        CommonTokenStream tokens = new CommonTokenStream(lexer);
-        tinyPythonParser parser = new tinyPythonParser(tokens);
-        ParseTree tree = parser.program();
+        boolean emitJasmin = false;
+        boolean runAfter = false;
+        boolean report = false;
+        boolean server = false;
+        boolean remote = false;
+        boolean batch = false;
+        CompileCache cache = null;
+        boolean incremental = false;
+        boolean interpret = false;
+        boolean tiered = false;
+        boolean repl = false;
+        List<Path> sources = new ArrayList<>();
+        CompilerOptions options = new CompilerOptions();
+        String sourceFile = "Test.tpy";
+        for (String arg : args) {
+            switch (arg) {
+                case "-jasmin" -> emitJasmin = true;
+                case "-run" -> runAfter = true;
+                case "-O0" -> options = CompilerOptions.none();
+                case "-memo" -> options.setMemoize(true);
+                case "-report" -> report = true;
+                case "-server" -> server = true;
+                case "-remote" -> remote = true;
+                case "-batch" -> batch = true;
+                case "-cache" -> cache = new CompileCache(CACHE_DIR, CACHE_MAX_BYTES);
+                case "-incremental" -> incremental = true;
+                case "-interpret" -> interpret = true;
+                case "-tiered" -> tiered = true;
+                case "-repl" -> repl = true;
+                default -> sources.add(Path.of(arg));
+            }
+        }
+        if (batch) {
+            int failed = new BatchCompiler(options, emitJasmin, cache).compileAll(sources);
+            if (failed > 0) System.exit(1);
+            return;
+        }
+        if (!sources.isEmpty()) sourceFile = sources.get(sources.size() - 1).toString();
+
+        if (repl) {
+            new Repl(options).loop();
+            return;
+        }
+        if (server) {
+            new CompileServer(CompileServer.DEFAULT_PORT, options).serve();
+            return;
+        }
+        if (remote) {
+            String source = Files.readString(Path.of(sourceFile), StandardCharsets.UTF_8);
+            byte[] reply = CompileServer.request(CompileServer.DEFAULT_PORT, runAfter ? "run" : "compile", source);
+            if (runAfter) System.out.print(new String(reply, StandardCharsets.UTF_8));
+            else Files.write(Path.of(CLASS_NAME + ".class"), reply);
+            return;
+        }
+        if (interpret || tiered) {
+            Interpreter interpreter = new Interpreter(SourceParser.parse(CharStreams.fromFileName(sourceFile)));
+            if (tiered) interpreter.enableTiering(TIER_UP_THRESHOLD, options);
+            interpreter.run();
+            if (report && tiered) interpreter.getProfile().forEach((name, count) -> System.out.println("[Tiered] " + name + ": " + count));
+            return;
+        }
+
+        // cache에 같은 소스와 옵션의 결과가 있으면 parse와 변환을 건너뛴다
+        String source = Files.readString(Path.of(sourceFile), StandardCharsets.UTF_8);
+        String key = cache == null ? null : CompileCache.keyOf(source, options, CLASS_NAME, emitJasmin ? "jasmin" : "class");
+        byte[] output = cache == null ? null : cache.get(key);
+        if (output == null) {
+            tinyPythonCompiler compiler = new tinyPythonCompiler(options);
+            Path artifactFile = Path.of(CLASS_NAME + ".ir");
+            BuildArtifact previous = incremental ? BuildArtifact.read(artifactFile) : null;
+            ClassCode classCode = compiler.compile(CharStreams.fromString(source, sourceFile), CLASS_NAME, previous); // SLL 실패 시 LL로 다시 parse
+            if (incremental) {
+                BuildArtifact build = compiler.getBuildArtifact();
+                build.write(artifactFile);
+                if (report) System.out.println("[Incremental] reused: " + build.getReused() + ", regenerated: " + build.getRegenerated());
+            }
+            if (report) {
+                compiler.getPeepholeSavings().forEach((name, saved) ->
+                        System.out.println("[Peephole] " + name + ": " + saved + " bytes saved"));
+                System.out.println("[Parse] SLL: " + SourceParser.getSllCount() + ", LL fallback: " + SourceParser.getFallbackCount());
+            }
+            if (emitJasmin && cache == null && !runAfter) {
+                // 결과를 다시 쓸 일이 없으면 Test.j에 method 단위로 바로 쓴다
+                try (Writer out = Files.newBufferedWriter(Path.of(CLASS_NAME + ".j"), StandardCharsets.UTF_8)) {
+                    JasminEmitter.emit(classCode, out);
+                }
+                return;
+            }
+            // Jasmin 텍스트 또는 Jasmin을 거치지 않은 class 파일
+            output = emitJasmin ? JasminEmitter.emit(classCode).getBytes(StandardCharsets.UTF_8) : ClassFileEmitter.emit(classCode);
+            if (cache != null) cache.put(key, output);
+        }
+        if (report && cache != null) {
+            System.out.println("[Cache] hits: " + cache.getHits() + ", misses: " + cache.getMisses() + ", evictions: " + cache.getEvictions());
+        }
+
+        byte[] classBytes;
+        if (emitJasmin) {
+            // Test.j에 java bytecode로 변환된 텍스트를 쓴다.
+            Files.write(Path.of(CLASS_NAME + ".j"), output);
+            if (!runAfter) return;
+            classBytes = ExecuteJasmin.assemble(new String(output, StandardCharsets.UTF_8), CLASS_NAME + ".j");
+        } else {
+            classBytes = output;
+            Files.write(Path.of(CLASS_NAME + ".class"), classBytes);
+        }
 
-        ParseTreeWalker walker = new ParseTreeWalker();
-        walker.walk(new tinyPythonCompiler(), tree);
+        if (runAfter) {
+            System.out.print(ExecuteJasmin.run(classBytes));
+        }
     }
-}
\ No newline at end of file
+}
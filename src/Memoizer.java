@@ -0,0 +1,165 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * 순수한 재귀 정수 함수의 결과를 static 배열 cache에 저장한다.
+ * 함수 body는 이름$impl method로 옮기고, 원래 이름의 method는 cache를 먼저 찾아보는 wrapper가 된다.
+ * cache는 용량이 고정된 direct-mapped 표이므로 같은 칸에 들어가는 인자가 오면 이전 값은 버려진다.
+ * 칸마다 {인자..., 결과} int[] 하나를 새로 만들어 통째로 바꾸므로, 여러 thread가 동시에 호출해도
+ * 한 번 읽은 칸의 인자와 결과는 항상 같은 항목에서 나온다.
+ */
+public class Memoizer {
+    private static final int T_INT = 10;
+
+    private final String className;
+    private final int capacity; // cache 칸 수 (2의 거듭제곱)
+    private final HashMap<String, MethodCode> functions = new HashMap<>(); // 이름+descriptor -> 함수
+
+    public Memoizer(String className, List<MethodCode> methods, int capacity) {
+        this.className = className;
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        for (MethodCode method : methods) {
+            if (!method.getName().equals("main")) functions.put(method.getName() + method.getDescriptor(), method);
+        }
+    }
+
+    /**
+     * 대상 함수를 cache wrapper로 바꾸고, 필요한 field와 static initializer를 추가한다.
+     * 메모이즈된 함수 이름 목록을 반환한다.
+     */
+    public List<String> apply(List<MethodCode> methods, List<FieldCode> fields) {
+        HashSet<String> pure = findPure();
+        InsnList clinit = new InsnList();
+        List<String> memoized = new ArrayList<>();
+
+        for (int i = 0; i < methods.size(); ++i) {
+            MethodCode method = methods.get(i);
+            String key = method.getName() + method.getDescriptor();
+            int numOfArgs = Insn.argumentSize(method.getDescriptor());
+            if (!functions.containsKey(key) || !pure.contains(key) || numOfArgs == 0 || !isRecursive(key)) continue;
+
+            String prefix = method.getName() + "$" + numOfArgs; // cache field 이름 앞부분
+            MethodCode impl = new MethodCode(method.getName() + "$impl", method.getDescriptor(), method.getBody(), method.getSymbolCount());
+            MethodCode wrapper = new MethodCode(method.getName(), method.getDescriptor(), makeWrapper(method, prefix, numOfArgs), numOfArgs + 3);
+            methods.set(i, wrapper);
+            methods.add(i + 1, impl);
+            ++i;
+
+            // cache 배열 field와 초기화 코드
+            fields.add(new FieldCode(prefix + "$entries", "[[I"));
+            clinit.add(Insn.ldc(capacity))
+                    .add(Insn.type(Opcode.ANEWARRAY, "[I"))
+                    .add(Insn.member(Opcode.PUTSTATIC, className, prefix + "$entries", "[[I"));
+            memoized.add(method.getName());
+        }
+
+        if (!clinit.isEmpty()) {
+            clinit.add(Insn.simple(Opcode.RETURN));
+            methods.add(new MethodCode("<clinit>", "()V", clinit, 0));
+        }
+        return memoized;
+    }
+
+    /**
+     * cache를 먼저 찾아보고, 없으면 $impl을 호출해서 결과를 저장하는 wrapper body.
+     * 지역 변수: 0 ~ numOfArgs-1 인자, numOfArgs cache 칸 번호, numOfArgs+1 계산 결과, numOfArgs+2 칸의 항목
+     */
+    private InsnList makeWrapper(MethodCode method, String prefix, int numOfArgs) {
+        int slot = numOfArgs;
+        int result = numOfArgs + 1;
+        int entry = numOfArgs + 2;
+        Label miss = new Label("Miss");
+        InsnList code = new InsnList();
+
+        // 칸 번호 = hash(인자) & (capacity - 1)
+        code.add(Insn.var(Opcode.ILOAD, 0));
+        for (int a = 1; a < numOfArgs; ++a) {
+            code.add(Insn.ldc(31)).add(Insn.simple(Opcode.IMUL))
+                    .add(Insn.var(Opcode.ILOAD, a)).add(Insn.simple(Opcode.IADD));
+        }
+        code.add(Insn.simple(Opcode.DUP)).add(Insn.ldc(16)).add(Insn.simple(Opcode.IUSHR)).add(Insn.simple(Opcode.IXOR))
+                .add(Insn.ldc(capacity - 1)).add(Insn.simple(Opcode.IAND))
+                .add(Insn.var(Opcode.ISTORE, slot));
+
+        // 칸의 항목은 한 번만 읽는다, 비어 있거나 인자가 다르면 miss
+        code.add(getField(prefix + "$entries", "[[I")).add(Insn.var(Opcode.ILOAD, slot)).add(Insn.simple(Opcode.AALOAD))
+                .add(Insn.var(Opcode.ASTORE, entry))
+                .add(Insn.var(Opcode.ALOAD, entry)).add(Insn.jump(Opcode.IFNULL, miss));
+        for (int a = 0; a < numOfArgs; ++a) {
+            code.add(Insn.var(Opcode.ALOAD, entry)).add(Insn.ldc(a)).add(Insn.simple(Opcode.IALOAD))
+                    .add(Insn.var(Opcode.ILOAD, a))
+                    .add(Insn.jump(Opcode.IF_ICMPNE, miss));
+        }
+        code.add(Insn.var(Opcode.ALOAD, entry)).add(Insn.ldc(numOfArgs)).add(Insn.simple(Opcode.IALOAD))
+                .add(Insn.simple(Opcode.IRETURN));
+
+        // 실제 계산 후 새 항목을 만들어 칸에 넣는다 (같은 칸의 이전 항목은 버린다)
+        code.add(Insn.label(miss));
+        for (int a = 0; a < numOfArgs; ++a) code.add(Insn.var(Opcode.ILOAD, a));
+        code.add(Insn.member(Opcode.INVOKESTATIC, className, method.getName() + "$impl", method.getDescriptor()))
+                .add(Insn.var(Opcode.ISTORE, result));
+        code.add(Insn.ldc(numOfArgs + 1)).add(Insn.push(Opcode.NEWARRAY, T_INT)).add(Insn.var(Opcode.ASTORE, entry));
+        for (int a = 0; a < numOfArgs; ++a) {
+            code.add(Insn.var(Opcode.ALOAD, entry)).add(Insn.ldc(a))
+                    .add(Insn.var(Opcode.ILOAD, a)).add(Insn.simple(Opcode.IASTORE));
+        }
+        code.add(Insn.var(Opcode.ALOAD, entry)).add(Insn.ldc(numOfArgs))
+                .add(Insn.var(Opcode.ILOAD, result)).add(Insn.simple(Opcode.IASTORE));
+        code.add(getField(prefix + "$entries", "[[I")).add(Insn.var(Opcode.ILOAD, slot))
+                .add(Insn.var(Opcode.ALOAD, entry)).add(Insn.simple(Opcode.AASTORE));
+        code.add(Insn.var(Opcode.ILOAD, result)).add(Insn.simple(Opcode.IRETURN));
+        return code;
+    }
+
+    private Insn getField(String name, String descriptor) {
+        return Insn.member(Opcode.GETSTATIC, className, name, descriptor);
+    }
+
+    /**
+     * 출력 없이 인자만 읽고 다른 순수 함수만 호출하는 함수 찾기.
+     * 모두 순수하다고 가정한 뒤, 조건을 어기는 함수를 더 이상 바뀌지 않을 때까지 제외한다.
+     */
+    private HashSet<String> findPure() {
+        HashSet<String> pure = new HashSet<>(functions.keySet());
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (String key : functions.keySet()) {
+                if (pure.contains(key) && !isPureBody(functions.get(key).getBody(), pure)) {
+                    pure.remove(key);
+                    changed = true;
+                }
+            }
+        }
+        return pure;
+    }
+
+    private boolean isPureBody(InsnList body, HashSet<String> pure) {
+        for (Insn insn : body) {
+            Opcode op = insn.getOp();
+            if (op == Opcode.GETSTATIC || op == Opcode.PUTSTATIC || op == Opcode.INVOKEVIRTUAL) return false; // 출력, 외부 상태
+            if (op == Opcode.INVOKESTATIC
+                    && !(className.equals(insn.getOwner()) && pure.contains(insn.getName() + insn.getDescriptor()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 함수가 호출 관계를 따라 자기 자신에게 돌아오는지 확인
+    private boolean isRecursive(String key) {
+        HashSet<String> visited = new HashSet<>();
+        ArrayList<String> work = new ArrayList<>(List.of(key));
+        while (!work.isEmpty()) {
+            for (Insn insn : functions.get(work.remove(work.size() - 1)).getBody()) {
+                if (insn.getOp() != Opcode.INVOKESTATIC || !className.equals(insn.getOwner())) continue;
+                String callee = insn.getName() + insn.getDescriptor();
+                if (callee.equals(key)) return true;
+                if (functions.containsKey(callee) && visited.add(callee)) work.add(callee);
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,63 @@
+import java.util.HashMap;
+
+/**
+ * 컴파일된 method 하나의 정보.
+ * method 이름, descriptor, 명령어 목록(body)과 stack/local 크기를 가진다.
+ * stack/local 크기는 모든 변환이 끝난 뒤 {@link FrameSizeAnalyzer}가 계산한다.
+ */
+public class MethodCode {
+    private final String name;
+    private final String descriptor;
+    private final InsnList body;
+    private final int symbolCount; // symbol table에 등록된 변수 수 (인자 포함)
+    private int maxStack;
+    private int maxLocals;
+
+    public MethodCode(String name, String descriptor, InsnList body, int symbolCount) {
+        this.name = name;
+        this.descriptor = descriptor;
+        this.body = body;
+        this.symbolCount = symbolCount;
+    }
+
+    // body까지 복사한 새 method, label도 새 객체로 바꾼다 (최적화 과정이 body를 직접 수정하므로)
+    public MethodCode copy() {
+        HashMap<Label, Label> labels = new HashMap<>();
+        InsnList copied = new InsnList();
+        for (Insn insn : body) {
+            Insn copiedInsn = insn.copy();
+            if (insn.getLabel() != null) copiedInsn.setLabel(labels.computeIfAbsent(insn.getLabel(), l -> new Label(l.getName())));
+            copied.add(copiedInsn);
+        }
+        return new MethodCode(name, descriptor, copied, symbolCount);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescriptor() {
+        return descriptor;
+    }
+
+    public InsnList getBody() {
+        return body;
+    }
+
+    public int getSymbolCount() {
+        return symbolCount;
+    }
+
+    public int getMaxStack() {
+        return maxStack;
+    }
+
+    public int getMaxLocals() {
+        return maxLocals;
+    }
+
+    public void setLimits(int maxStack, int maxLocals) {
+        this.maxStack = maxStack;
+        this.maxLocals = maxLocals;
+    }
+}
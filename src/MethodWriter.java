@@ -0,0 +1,226 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * 하나의 method에 대한 Code attribute를 만든다.
+ * 분기 대상 label은 이름으로 관리하며, 아직 위치가 정해지지 않은 label은 마지막에 offset을 채운다.
+ * offset이 16bit를 넘는 분기가 있으면 {@link #restartWithLongJumps()} 후 처음부터 다시 기록해
+ * 모든 분기를 goto_w(조건 분기는 반대 조건으로 goto_w를 건너뛰는 형태)로 만든다.
+ */
+public class MethodWriter {
+    private final ClassFileWriter owner;
+    private final int access;
+    private final int nameIndex;
+    private final int descriptorIndex;
+
+    private byte[] code = new byte[64];
+    private int length = 0;
+    private int maxStack = 0;
+    private int maxLocals = 0;
+
+    private final HashMap<String, Integer> labels = new HashMap<>(); // label 이름 -> code offset
+    private final List<int[]> fixups = new ArrayList<>(); // {명령어 시작 위치, offset 기록 위치, offset 바이트 수}
+    private final List<String> fixupLabels = new ArrayList<>();
+    private boolean longJumps = false; // 모든 분기를 4바이트 offset으로 기록
+
+    MethodWriter(ClassFileWriter owner, int access, int nameIndex, int descriptorIndex) {
+        this.owner = owner;
+        this.access = access;
+        this.nameIndex = nameIndex;
+        this.descriptorIndex = descriptorIndex;
+    }
+
+    // operand가 없는 명령어
+    public void insn(Opcode op) {
+        put1(op.getCode());
+    }
+
+    // 지역 변수 load/store, 0~3번은 1바이트 형태를 쓴다
+    public void varInsn(Opcode op, int index) {
+        if (index <= 3) {
+            int shortBase = switch (op) {
+                case ILOAD -> 0x1a;
+                case ALOAD -> 0x2a;
+                case ISTORE -> 0x3b;
+                case ASTORE -> 0x4b;
+                default -> throw new IllegalArgumentException(op.getMnemonic());
+            };
+            put1(shortBase + index);
+        } else if (index <= 0xff) {
+            put1(op.getCode());
+            put1(index);
+        } else {
+            put1(0xc4); // wide
+            put1(op.getCode());
+            put2(index);
+        }
+    }
+
+    // 지역 변수 증가, 범위를 벗어나면 wide 형태를 쓴다
+    public void iinc(int index, int increment) {
+        if (index <= 0xff && increment >= Byte.MIN_VALUE && increment <= Byte.MAX_VALUE) {
+            put1(Opcode.IINC.getCode());
+            put1(index);
+            put1(increment);
+        } else {
+            put1(0xc4); // wide
+            put1(Opcode.IINC.getCode());
+            put2(index);
+            put2(increment);
+        }
+    }
+
+    // bipush, sipush, newarray
+    public void intInsn(Opcode op, int value) {
+        put1(op.getCode());
+        if (op == Opcode.SIPUSH) put2(value);
+        else put1(value);
+    }
+
+    // 정수 상수 load
+    public void ldc(int value) {
+        ldcIndex(owner.integer(value));
+    }
+
+    // 문자열 상수 load
+    public void ldc(String value) {
+        ldcIndex(owner.string(value));
+    }
+
+    private void ldcIndex(int index) {
+        if (index <= 0xff) {
+            put1(Opcode.LDC.getCode());
+            put1(index);
+        } else {
+            put1(0x13); // ldc_w
+            put2(index);
+        }
+    }
+
+    // 분기 명령어, 대상 label의 위치는 마지막에 채운다
+    public void jumpInsn(Opcode op, String label) {
+        if (longJumps) {
+            if (op != Opcode.GOTO) {
+                put1(invert(op.getCode()));
+                put2(3 + 5); // 이 명령어와 뒤의 goto_w를 건너뛴다
+            }
+            int start = length;
+            put1(0xc8); // goto_w
+            fixups.add(new int[]{start, length, 4});
+            fixupLabels.add(label);
+            put2(0);
+            put2(0);
+            return;
+        }
+        int start = length;
+        put1(op.getCode());
+        fixups.add(new int[]{start, length, 2});
+        fixupLabels.add(label);
+        put2(0);
+    }
+
+    // 반대 조건의 분기 opcode
+    private static int invert(int code) {
+        if (code == Opcode.IFNULL.getCode()) return 0xc7; // ifnonnull
+        return ((code - Opcode.IFEQ.getCode()) ^ 1) + Opcode.IFEQ.getCode(); // ifeq/ifne, iflt/ifge ... if_icmpgt/if_icmple 쌍
+    }
+
+    // 2바이트 offset으로 닿지 않는 분기가 있는지
+    public boolean needsLongJumps() {
+        for (int i = 0; i < fixups.size(); ++i) {
+            Integer target = labels.get(fixupLabels.get(i));
+            if (target == null) continue;
+            int offset = target - fixups.get(i)[0];
+            if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) return true;
+        }
+        return false;
+    }
+
+    // 지금까지 기록한 code를 버리고 긴 분기 형태로 다시 기록할 준비를 한다
+    public void restartWithLongJumps() {
+        length = 0;
+        labels.clear();
+        fixups.clear();
+        fixupLabels.clear();
+        longJumps = true;
+    }
+
+    // 현재 위치에 label 지정
+    public void label(String label) {
+        labels.put(label, length);
+    }
+
+    public void methodInsn(Opcode op, String owner, String name, String descriptor) {
+        put1(op.getCode());
+        put2(this.owner.methodRef(owner, name, descriptor));
+    }
+
+    // anewarray, 원소 type은 class 참조로 기록한다
+    public void typeInsn(Opcode op, String type) {
+        put1(op.getCode());
+        put2(owner.classRef(type));
+    }
+
+    public void fieldInsn(Opcode op, String owner, String name, String descriptor) {
+        put1(op.getCode());
+        put2(this.owner.fieldRef(owner, name, descriptor));
+    }
+
+    public void maxs(int maxStack, int maxLocals) {
+        this.maxStack = maxStack;
+        this.maxLocals = maxLocals;
+    }
+
+    // method_info 구조를 기록한다
+    void writeTo(DataOutputStream out, int codeName) throws IOException {
+        resolveLabels();
+
+        out.writeShort(access);
+        out.writeShort(nameIndex);
+        out.writeShort(descriptorIndex);
+        out.writeShort(1); // Code attribute 하나
+
+        out.writeShort(codeName);
+        out.writeInt(12 + length); // attribute 길이
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(length);
+        out.write(code, 0, length);
+        out.writeShort(0); // exception table
+        out.writeShort(0); // code attributes
+    }
+
+    private void resolveLabels() {
+        for (int i = 0; i < fixups.size(); ++i) {
+            Integer target = labels.get(fixupLabels.get(i));
+            if (target == null) throw new IllegalStateException("undefined label " + fixupLabels.get(i));
+
+            int offset = target - fixups.get(i)[0];
+            int pos = fixups.get(i)[1];
+            if (fixups.get(i)[2] == 4) {
+                code[pos++] = (byte) (offset >> 24);
+                code[pos++] = (byte) (offset >> 16);
+            } else if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                throw new IllegalStateException("branch offset too large: " + fixupLabels.get(i)); // needsLongJumps를 확인하지 않은 경우
+            }
+            code[pos] = (byte) (offset >> 8);
+            code[pos + 1] = (byte) offset;
+        }
+        fixups.clear();
+        fixupLabels.clear();
+    }
+
+    private void put1(int b) {
+        if (length == code.length) code = Arrays.copyOf(code, length * 2);
+        code[length++] = (byte) b;
+    }
+
+    private void put2(int s) {
+        put1(s >> 8);
+        put1(s);
+    }
+}
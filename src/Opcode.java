@@ -0,0 +1,93 @@
+/**
+ * 컴파일러가 사용하는 JVM 명령어 목록.
+ * Jasmin 표기(mnemonic)와 class 파일에 기록되는 opcode 값, operand stack 변화량을 함께 가진다.
+ * method 호출처럼 descriptor에 따라 변화량이 달라지는 명령어는 0으로 두고 {@link Insn}에서 계산한다.
+ */
+public enum Opcode {
+    ICONST_M1("iconst_m1", 0x02, 1),
+    ICONST_0("iconst_0", 0x03, 1),
+    ICONST_1("iconst_1", 0x04, 1),
+    ICONST_2("iconst_2", 0x05, 1),
+    ICONST_3("iconst_3", 0x06, 1),
+    ICONST_4("iconst_4", 0x07, 1),
+    ICONST_5("iconst_5", 0x08, 1),
+    BIPUSH("bipush", 0x10, 1),
+    SIPUSH("sipush", 0x11, 1),
+    ALOAD("aload", 0x19, 1),
+    ILOAD("iload", 0x15, 1),
+    IALOAD("iaload", 0x2e, -1),
+    BALOAD("baload", 0x33, -1),
+    ISTORE("istore", 0x36, -1),
+    IASTORE("iastore", 0x4f, -3),
+    BASTORE("bastore", 0x54, -3),
+    LDC("ldc", 0x12, 1),
+    POP("pop", 0x57, -1),
+    POP2("pop2", 0x58, -2),
+    DUP("dup", 0x59, 1),
+    IADD("iadd", 0x60, -1),
+    ISUB("isub", 0x64, -1),
+    IMUL("imul", 0x68, -1),
+    IUSHR("iushr", 0x7c, -1),
+    IAND("iand", 0x7e, -1),
+    IXOR("ixor", 0x82, -1),
+    IINC("iinc", 0x84, 0),
+    IFEQ("ifeq", 0x99, -1),
+    IFNE("ifne", 0x9a, -1),
+    IFLT("iflt", 0x9b, -1),
+    IFGE("ifge", 0x9c, -1),
+    IFGT("ifgt", 0x9d, -1),
+    IFLE("ifle", 0x9e, -1),
+    IF_ICMPEQ("if_icmpeq", 0x9f, -2),
+    IF_ICMPNE("if_icmpne", 0xa0, -2),
+    IF_ICMPLT("if_icmplt", 0xa1, -2),
+    IF_ICMPGE("if_icmpge", 0xa2, -2),
+    IF_ICMPGT("if_icmpgt", 0xa3, -2),
+    IF_ICMPLE("if_icmple", 0xa4, -2),
+    GOTO("goto", 0xa7, 0),
+    IRETURN("ireturn", 0xac, -1),
+    RETURN("return", 0xb1, 0),
+    GETSTATIC("getstatic", 0xb2, 1),
+    PUTSTATIC("putstatic", 0xb3, -1),
+    INVOKEVIRTUAL("invokevirtual", 0xb6, 0),
+    INVOKESPECIAL("invokenonvirtual", 0xb7, 0), // Jasmin은 invokespecial을 invokenonvirtual로 표기한다
+    INVOKESTATIC("invokestatic", 0xb8, 0),
+    NEWARRAY("newarray", 0xbc, 0),
+    // 빌드 결과 파일이 ordinal로 기록하므로 새 명령어는 끝에 추가한다
+    ASTORE("astore", 0x3a, -1),
+    AALOAD("aaload", 0x32, -1),
+    AASTORE("aastore", 0x53, -3),
+    ANEWARRAY("anewarray", 0xbd, 0),
+    IFNULL("ifnull", 0xc6, -1);
+
+    private final String mnemonic; // Jasmin 표기
+    private final int code; // class 파일의 opcode 값
+    private final int stackEffect; // 실행 후 operand stack 크기 변화
+
+    Opcode(String mnemonic, int code, int stackEffect) {
+        this.mnemonic = mnemonic;
+        this.code = code;
+        this.stackEffect = stackEffect;
+    }
+
+    public String getMnemonic() {
+        return mnemonic;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public int getStackEffect() {
+        return stackEffect;
+    }
+
+    // 다음 명령어로 진행하지 않는 명령어인지 확인 (goto, return)
+    public boolean isUnconditional() {
+        return this == GOTO || this == IRETURN || this == RETURN;
+    }
+
+    // 분기 명령어인지 확인
+    public boolean isJump() {
+        return this == GOTO || this == IFNULL || (code >= IFEQ.code && code <= IF_ICMPLE.code);
+    }
+}
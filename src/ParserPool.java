@@ -0,0 +1,63 @@
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 다 쓴 lexer/parser 쌍을 보관했다가 다음 parse에서 다시 쓴다.
+ * 여러 thread가 함께 쓸 수 있으며, 빌려 간 쌍은 돌려받을 때까지 한 thread만 사용한다.
+ * ANTLR의 DFA cache는 문법별로 공유되므로, 같은 process에서 parse를 반복할수록 예측이 빨라진다.
+ */
+public class ParserPool {
+    /** 입력 하나를 처리하는 lexer, token stream, parser 묶음 */
+    public static class Entry {
+        private final tinyPythonLexer lexer = new tinyPythonLexer(null);
+        private final CommonTokenStream tokens = new CommonTokenStream(lexer);
+        private final tinyPythonParser parser = new tinyPythonParser(tokens);
+
+        // 새 입력으로 다시 연결
+        private void attach(CharStream source) {
+            lexer.setInputStream(source);
+            tokens.setTokenSource(lexer);
+            parser.setTokenStream(tokens);
+        }
+
+        public CommonTokenStream getTokens() {
+            return tokens;
+        }
+
+        public tinyPythonParser getParser() {
+            return parser;
+        }
+    }
+
+    private static final ParserPool shared = new ParserPool(16);
+
+    private final ConcurrentLinkedQueue<Entry> idle = new ConcurrentLinkedQueue<>();
+    private final int maxIdle; // 보관할 최대 개수
+
+    public ParserPool(int maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    // process 전체에서 함께 쓰는 pool
+    public static ParserPool shared() {
+        return shared;
+    }
+
+    // 남는 쌍이 있으면 다시 쓰고, 없으면 새로 만든다
+    public Entry borrow(CharStream source) {
+        Entry entry = idle.poll();
+        if (entry == null) entry = new Entry();
+        entry.attach(source);
+        return entry;
+    }
+
+    // parse tree를 만든 뒤 돌려준다, 입력에 대한 참조는 끊어 둔다
+    public void release(Entry entry) {
+        entry.parser.setTokenStream(null);
+        entry.lexer.setInputStream(null);
+        entry.tokens.setTokenSource(entry.lexer);
+        if (idle.size() < maxIdle) idle.offer(entry);
+    }
+}
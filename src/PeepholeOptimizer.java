@@ -0,0 +1,134 @@
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * 변환이 끝난 method body를 작은 창(window) 단위로 훑으며 명령어를 줄인다.
+ * 적용할 규칙은 {@link CompilerOptions}에서 선택하며, 더 이상 바뀌지 않을 때까지 반복한다.
+ */
+public class PeepholeOptimizer {
+
+    public enum Rule {
+        CONSTANTS, // ldc n -> iconst_n, bipush, sipush
+        JUMP_THREADING, // goto L1 ... L1: goto L2  ->  goto L2
+        JUMP_TO_NEXT, // goto L; L:  ->  L:
+        STORE_LOAD // istore n; iload n  ->  dup; istore n
+    }
+
+    private final EnumSet<Rule> rules;
+
+    public PeepholeOptimizer(EnumSet<Rule> rules) {
+        this.rules = rules;
+    }
+
+    // method body를 최적화하고 줄어든 바이트 수를 반환
+    public int optimize(MethodCode method) {
+        InsnList body = method.getBody();
+        int before = sizeOf(body);
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            if (rules.contains(Rule.STORE_LOAD)) changed |= storeLoad(body);
+            if (rules.contains(Rule.JUMP_THREADING)) changed |= threadJumps(body);
+            if (rules.contains(Rule.JUMP_TO_NEXT)) changed |= removeJumpToNext(body);
+        }
+        if (rules.contains(Rule.CONSTANTS)) selectConstants(body);
+
+        return before - sizeOf(body);
+    }
+
+    public static int sizeOf(InsnList body) {
+        int size = 0;
+        for (Insn insn : body) size += insn.getSize();
+        return size;
+    }
+
+    // istore n 바로 뒤의 iload n은 저장 전에 값을 복사해서 대신한다
+    private boolean storeLoad(InsnList body) {
+        boolean changed = false;
+        for (Insn insn = body.getFirst(); insn != null; insn = insn.getNext()) {
+            Insn next = insn.getNext();
+            if (insn.getOp() == Opcode.ISTORE && next != null && next.getOp() == Opcode.ILOAD
+                    && next.getOperand() == insn.getOperand()) {
+                body.insertBefore(insn, Insn.simple(Opcode.DUP));
+                body.remove(next);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    // 다른 goto로 바로 이어지는 label을 향한 분기는 최종 목적지로 바로 보낸다
+    private boolean threadJumps(InsnList body) {
+        HashMap<Label, Insn> labelPosition = labelPositions(body);
+        boolean changed = false;
+        for (Insn insn : body) {
+            if (insn.getOp() == null || !insn.getOp().isJump()) continue;
+
+            Label target = insn.getLabel();
+            HashSet<Label> visited = new HashSet<>(); // goto 순환 방지
+            while (visited.add(target)) {
+                Insn real = firstRealInsn(labelPosition.get(target));
+                if (real == null || real.getOp() != Opcode.GOTO) break;
+                target = real.getLabel();
+            }
+            if (target != insn.getLabel()) {
+                insn.setLabel(target);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    // 바로 다음 위치로 가는 goto 제거
+    private boolean removeJumpToNext(InsnList body) {
+        boolean changed = false;
+        for (Insn insn : body) {
+            if (insn.getOp() != Opcode.GOTO) continue;
+            for (Insn next = insn.getNext(); next != null && next.isLabel(); next = next.getNext()) {
+                if (next.getLabel() == insn.getLabel()) {
+                    body.remove(insn);
+                    changed = true;
+                    break;
+                }
+            }
+        }
+        return changed;
+    }
+
+    // 정수 ldc를 크기가 작은 전용 명령어로 바꾼다
+    private void selectConstants(InsnList body) {
+        for (Insn insn : body) {
+            if (insn.getOp() != Opcode.LDC || insn.getConstant() != null) continue;
+
+            int value = insn.getOperand();
+            Insn replacement;
+            if (value >= -1 && value <= 5) {
+                replacement = Insn.simple(Opcode.values()[Opcode.ICONST_0.ordinal() + value]);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                replacement = Insn.push(Opcode.BIPUSH, value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                replacement = Insn.push(Opcode.SIPUSH, value);
+            } else {
+                continue;
+            }
+            body.insertBefore(insn, replacement);
+            body.remove(insn);
+        }
+    }
+
+    private static HashMap<Label, Insn> labelPositions(InsnList body) {
+        HashMap<Label, Insn> positions = new HashMap<>();
+        for (Insn insn : body) {
+            if (insn.isLabel()) positions.put(insn.getLabel(), insn);
+        }
+        return positions;
+    }
+
+    // label들을 건너뛴 첫 실제 명령어
+    private static Insn firstRealInsn(Insn insn) {
+        while (insn != null && insn.isLabel()) insn = insn.getNext();
+        return insn;
+    }
+}
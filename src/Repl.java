@@ -0,0 +1,187 @@
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * 입력을 하나씩 컴파일해서 바로 실행하는 대화형 모드.
+ * main scope의 symbol table 하나를 계속 쓰고, 변수 값은 입력 사이에 유지되는 int[] env에 둔다. (변수 번호 = env 칸)
+ * statement 입력은 run([I)V method 하나짜리 작은 hidden class가 되어, 쓰는 변수만 env에서 지역 변수로 읽고
+ * 끝날 때 바뀐 변수를 env에 다시 쓴다. 함수 정의는 입력할 때 컴파일해 두고, 호출하는 입력의 class에 필요한 함수만 함께 넣는다.
+ * 이전 입력을 다시 parse 하거나 실행하지 않으므로 입력 하나의 비용은 그 입력의 크기에만 비례한다.
+ */
+public class Repl {
+    private static final String CLASS_NAME = "Repl"; // 모든 입력 class가 같은 이름을 쓴다 (hidden class라 충돌하지 않음)
+    private static final String RUN_DESCRIPTOR = "([I)V";
+    private static final MethodType RUN_TYPE = MethodType.methodType(void.class, int[].class);
+
+    private final tinyPythonCompiler compiler;
+    private final HashMap<String, Symbol> scope = new HashMap<>(); // 입력 사이에 유지되는 main scope
+    private final LinkedHashMap<String, MethodCode> functions = new LinkedHashMap<>(); // 이름+descriptor -> 컴파일된 함수
+    private int[] env = new int[16];
+
+    public Repl(CompilerOptions options) {
+        // memoize는 함수마다 static field와 <clinit>을 만들어 입력별 class로 나눌 수 없으므로 끈다 (호출한 쪽의 설정은 그대로 둔다)
+        compiler = new tinyPythonCompiler(options.copy().setMemoize(false));
+        compiler.setLog(new PrintStream(OutputStream.nullOutputStream()));
+        scope.put("args", new Symbol("args", 0)); // 0번 지역 변수는 env 배열
+    }
+
+    // 표준 입력에서 읽어 실행, ':'로 끝나는 줄은 빈 줄이 나올 때까지 이어서 읽는다
+    public void loop() throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        while (true) {
+            System.out.print(">>> ");
+            System.out.flush();
+            String line = in.readLine();
+            if (line == null) break;
+            if (line.isBlank()) continue;
+
+            StringBuilder input = new StringBuilder(line).append('\n');
+            if (line.stripTrailing().endsWith(":")) {
+                while (true) {
+                    System.out.print("... ");
+                    System.out.flush();
+                    String next = in.readLine();
+                    if (next == null || next.isBlank()) break;
+                    input.append(next).append('\n');
+                }
+                input.append('\n'); // 빈 줄로 block을 끝낸다
+            }
+            try {
+                eval(input.toString());
+            } catch (Exception | LinkageError | StackOverflowError e) { // 깊은 재귀도 session을 끝내지 않는다
+                System.out.println("error: " + e);
+            }
+        }
+        System.out.println();
+    }
+
+    /**
+     * 입력 하나(statement 또는 함수 정의)를 컴파일하고 실행한다.
+     */
+    public void eval(String input) throws ReflectiveOperationException {
+        tinyPythonParser.ProgramContext tree = SourceParser.parse(CharStreams.fromString(input, "<repl>"));
+        if (hasSyntaxError(tree)) throw new IllegalArgumentException("문법 오류");
+
+        HashMap<String, Symbol> scopeBefore = new HashMap<>(scope);
+        ClassCode classCode;
+        try {
+            classCode = compiler.compile(tree, CLASS_NAME, scope);
+        } catch (RuntimeException e) {
+            restoreScope(scopeBefore);
+            throw e;
+        }
+
+        MethodCode main = null;
+        List<MethodCode> defined = new ArrayList<>();
+        for (MethodCode method : classCode.getMethods()) {
+            if (method.getName().equals("main")) main = method;
+            else defined.add(method);
+        }
+        if (!defined.isEmpty()) define(defined);
+        if (main != null && main.getBody().size() > 1) { // return 하나뿐이면 실행할 statement가 없다
+            try {
+                run(main);
+            } catch (ReflectiveOperationException | RuntimeException | LinkageError | StackOverflowError e) {
+                restoreScope(scopeBefore); // 검증이나 실행에 실패한 입력이 만든 변수는 없던 것으로 한다
+                throw e;
+            }
+        }
+    }
+
+    // 새 함수를 검증한 뒤 등록한다, 같은 이름과 인자 수의 함수는 바꾼다
+    private void define(List<MethodCode> defined) throws IllegalAccessException {
+        LinkedHashMap<String, MethodCode> candidate = new LinkedHashMap<>(functions);
+        List<String> roots = new ArrayList<>();
+        for (MethodCode method : defined) {
+            candidate.put(method.getName() + method.getDescriptor(), method);
+            roots.add(method.getName() + method.getDescriptor());
+        }
+        ClassCode classCode = new ClassCode(CLASS_NAME, List.of(), new ArrayList<>(candidate.values()));
+        HiddenScript.define(ClassFileEmitter.emit(classCode.subset(roots))); // 검증만 하고 class는 버린다
+        functions.putAll(candidate);
+    }
+
+    // main body를 env를 읽고 쓰는 run method로 바꿔 실행한다
+    private void run(MethodCode main) throws ReflectiveOperationException {
+        InsnList body = main.getBody();
+        TreeSet<Integer> used = new TreeSet<>(); // 읽거나 쓰는 변수
+        TreeSet<Integer> written = new TreeSet<>(); // 쓰는 변수
+        for (Insn insn : body) {
+            Opcode op = insn.getOp();
+            if (op != Opcode.ILOAD && op != Opcode.ISTORE && op != Opcode.IINC) continue;
+            used.add(insn.getOperand());
+            if (op != Opcode.ILOAD) written.add(insn.getOperand());
+        }
+        for (Insn insn = body.getFirst(); insn != null; insn = insn.getNext()) {
+            if (insn.getOp() == Opcode.RETURN) body.insertBefore(insn, storeToEnv(written));
+        }
+        InsnList code = loadFromEnv(used).addAll(body);
+
+        if (scope.size() > env.length) env = Arrays.copyOf(env, Math.max(scope.size(), env.length * 2));
+        MethodCode run = new MethodCode("run", RUN_DESCRIPTOR, code, main.getSymbolCount());
+        FrameSizeAnalyzer.analyze(run);
+
+        List<MethodCode> methods = new ArrayList<>(functions.values());
+        methods.add(run);
+        ClassCode classCode = new ClassCode(CLASS_NAME, List.of(), methods).subset(List.of("run" + RUN_DESCRIPTOR));
+        MethodHandle handle = HiddenScript.define(ClassFileEmitter.emit(classCode)).findStatic("run", RUN_TYPE);
+        try {
+            handle.invokeExact(env);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e); // 생성된 code는 checked 예외를 던지지 않는다
+        } finally {
+            System.out.flush();
+        }
+    }
+
+    // aload_0; ldc i; iaload; istore i
+    private static InsnList loadFromEnv(TreeSet<Integer> variables) {
+        InsnList code = new InsnList();
+        for (int index : variables) {
+            code.add(Insn.var(Opcode.ALOAD, 0)).add(Insn.ldc(index)).add(Insn.simple(Opcode.IALOAD)).add(Insn.var(Opcode.ISTORE, index));
+        }
+        return code;
+    }
+
+    // aload_0; ldc i; iload i; iastore
+    private static InsnList storeToEnv(TreeSet<Integer> variables) {
+        InsnList code = new InsnList();
+        for (int index : variables) {
+            code.add(Insn.var(Opcode.ALOAD, 0)).add(Insn.ldc(index)).add(Insn.var(Opcode.ILOAD, index)).add(Insn.simple(Opcode.IASTORE));
+        }
+        return code;
+    }
+
+    private void restoreScope(HashMap<String, Symbol> before) {
+        scope.clear();
+        scope.putAll(before);
+    }
+
+    private static boolean hasSyntaxError(ParseTree node) {
+        if (node instanceof ErrorNode) return true;
+        if (node instanceof ParserRuleContext rule && rule.exception != null) return true;
+        for (int i = 0; i < node.getChildCount(); ++i) {
+            if (hasSyntaxError(node.getChild(i))) return true;
+        }
+        return false;
+    }
+}
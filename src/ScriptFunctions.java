@@ -0,0 +1,57 @@
+import org.antlr.v4.runtime.CharStreams;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Java 코드에서 TinyPython 함수를 직접 부르기 위한 API.
+ * 소스를 한 번 컴파일해 hidden class로 올리고, def로 정의한 함수마다 static method를 그대로 가리키는
+ * (I...)I 타입의 MethodHandle을 돌려준다. 호출할 때는 reflection, boxing, parse 없이 invokeExact 한 번이며
+ * handle을 static final 등 상수로 두면 JIT이 호출하는 쪽 loop에 inline할 수 있다.
+ * 반환한 handle을 모두 버리면 class도 unload된다.
+ */
+public class ScriptFunctions {
+    private static final String CLASS_NAME = "Script";
+
+    private ScriptFunctions() {
+    }
+
+    public static Map<String, MethodHandle> compile(String source) throws IllegalAccessException {
+        return compile(source, new CompilerOptions());
+    }
+
+    /**
+     * 함수 이름 -> handle, 정의된 순서대로. 같은 이름이 인자 수를 달리해 여러 번 정의되면 "이름/인자 수"를 key로 쓴다.
+     * main과 최적화가 만든 보조 method(이름에 '$'가 들어간 것)는 포함하지 않는다.
+     */
+    public static Map<String, MethodHandle> compile(String source, CompilerOptions options) throws IllegalAccessException {
+        tinyPythonCompiler compiler = new tinyPythonCompiler(options);
+        compiler.setLog(new PrintStream(OutputStream.nullOutputStream()));
+        ClassCode classCode = compiler.compile(CharStreams.fromString(source), CLASS_NAME);
+        HiddenScript script = HiddenScript.define(ClassFileEmitter.emit(classCode));
+
+        HashMap<String, Integer> definitions = new HashMap<>(); // 이름별 정의 수
+        for (MethodCode method : classCode.getMethods()) {
+            if (isFunction(method)) definitions.merge(method.getName(), 1, Integer::sum);
+        }
+        LinkedHashMap<String, MethodHandle> functions = new LinkedHashMap<>();
+        for (MethodCode method : classCode.getMethods()) {
+            if (!isFunction(method)) continue;
+            String name = method.getName();
+            int numOfArgs = method.getDescriptor().indexOf(')') - 1; // 인자는 모두 I
+            String key = definitions.get(name) > 1 ? name + "/" + numOfArgs : name;
+            functions.put(key, script.directFunction(name, numOfArgs));
+        }
+        return Collections.unmodifiableMap(functions);
+    }
+
+    // def로 정의한 함수의 method인지
+    private static boolean isFunction(MethodCode method) {
+        return !method.getName().equals("main") && !method.getName().startsWith("<") && method.getName().indexOf('$') < 0;
+    }
+}
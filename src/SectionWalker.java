@@ -0,0 +1,27 @@
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+
+/**
+ * 함수 정의 부분(defs)과 main body를 구역 단위로 처리하는 walker.
+ * 함수 정의는 compiler가 함수마다 따로(병렬 또는 이전 빌드 재사용) 변환하고,
+ * 이전 빌드의 main을 재사용하면 main body의 statement는 방문하지 않는다. 나머지 tree는 기존처럼 순서대로 방문한다.
+ */
+public class SectionWalker extends ParseTreeWalker {
+    @Override
+    public void walk(ParseTreeListener listener, ParseTree t) {
+        if (listener instanceof tinyPythonCompiler compiler) {
+            if (t instanceof tinyPythonParser.DefsContext defs && compiler.shouldCompileDefsSeparately(defs)) {
+                enterRule(listener, defs);
+                compiler.compileDefsSeparately(defs);
+                exitRule(listener, defs);
+                return;
+            }
+            if (t instanceof tinyPythonParser.StmtContext stmt && stmt.getParent() instanceof tinyPythonParser.File_inputContext
+                    && compiler.isMainReused()) {
+                return;
+            }
+        }
+        super.walk(listener, t);
+    }
+}
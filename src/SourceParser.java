@@ -0,0 +1,57 @@
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 소스를 두 단계로 parse 한다.
+ * 먼저 빠른 SLL 예측과 BailErrorStrategy로 시도하고, 실패하면 처음부터 full LL로 다시 parse 한다.
+ * SLL이 실패하는 입력은 드물기 때문에 대부분 첫 단계에서 끝난다.
+ */
+public class SourceParser {
+    private static final AtomicLong sllCount = new AtomicLong(); // SLL로 끝난 parse 수
+    private static final AtomicLong fallbackCount = new AtomicLong(); // LL로 다시 parse 한 수
+
+    public static tinyPythonParser.ProgramContext parse(CharStream source) {
+        ParserPool.Entry entry = ParserPool.shared().borrow(source);
+        try {
+            return parse(entry.getTokens(), entry.getParser());
+        } finally {
+            ParserPool.shared().release(entry);
+        }
+    }
+
+    private static tinyPythonParser.ProgramContext parse(CommonTokenStream tokens, tinyPythonParser parser) {
+        // 1단계: SLL, 오류가 나면 바로 중단
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        parser.removeErrorListeners();
+        parser.setErrorHandler(new BailErrorStrategy());
+        try {
+            tinyPythonParser.ProgramContext tree = parser.program();
+            sllCount.incrementAndGet();
+            return tree;
+        } catch (ParseCancellationException e) {
+            // 2단계: 실제 문법 오류일 수도 있으므로 기본 오류 처리로 다시 parse
+            fallbackCount.incrementAndGet();
+            tokens.seek(0);
+            parser.reset();
+            parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+            parser.setErrorHandler(new DefaultErrorStrategy());
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            return parser.program();
+        }
+    }
+
+    public static long getSllCount() {
+        return sllCount.get();
+    }
+
+    public static long getFallbackCount() {
+        return fallbackCount.get();
+    }
+}
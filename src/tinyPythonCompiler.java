@@ -1,73 +1,212 @@
+import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.tree.ParseTreeProperty;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Stack;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
 
 public class tinyPythonCompiler extends tinyPythonBaseListener {
-    ParseTreeProperty<String> convertedProperty = new ParseTreeProperty<>(); // 바뀐 출력을 저장하는 property
+    private static final int PARALLEL_DEF_MIN = 8; // 병렬 변환을 시작하는 함수 정의 수
+    ParseTreeProperty<InsnList> convertedProperty = new ParseTreeProperty<>(); // 바뀐 출력(명령어 목록)을 저장하는 property
+    ParseTreeProperty<MethodCode> methodProperty = new ParseTreeProperty<>(); // 함수 정의별 method 정보
+    private List<MethodCode> methods = new ArrayList<>(); // class에 들어갈 method 목록
+    private List<FieldCode> fields = new ArrayList<>(); // class에 들어갈 static field 목록
     private final Stack<HashMap<String, Symbol>> symbolTable = new Stack<>(); //
-    private final Stack<String[]> loopState = new Stack<>(); // 이중 반복을 고려하기 위해
-    private final int BASE_SIZE = 16; // stack, local 변수 배열의 기본 크기
+    private final Stack<Label[]> loopState = new Stack<>(); // 이중 반복을 고려하기 위해
     private int labelIdx = 0; // branch 처리를 위한 label 에 부여할 번호
+    private tinyPythonParser.Def_stmtContext currentDef; // 처리 중인 함수 정의 (main body이면 null)
+    private Label functionHead; // 처리 중인 함수 body의 시작 위치, 꼬리 호출이 돌아오는 곳
+    private ClassCode result; // 컴파일 결과
+    private final CompilerOptions options; // 최적화 설정
+    private ConstantFolder folder = new ConstantFolder(); // 상수 계산
+    private LinkedHashMap<String, Integer> peepholeSavings = new LinkedHashMap<>(); // method별 peephole로 줄어든 바이트 수
+    private PrintStream log = System.out; // 변환 과정 디버그 출력
+    private String className = "Test"; // 만들 class 이름
+    private BuildArtifact previousBuild; // 증분 컴파일에 쓰는 이전 빌드 결과 (사용하지 않으면 null)
+    private BuildArtifact currentBuild; // 이번 빌드 결과, 다음 증분 컴파일에 쓴다
+    private String mainFingerprint; // main body의 fingerprint
+    private MethodCode reusedMain; // 이전 빌드에서 가져온 main method (다시 변환해야 하면 null)
+    private List<String> outerVariables = List.of(); // REPL의 이전 입력에서 이미 만든 변수, 상수로 취급하지 않는다
 
 
     // 생성자
     public tinyPythonCompiler() {
+        this(new CompilerOptions());
+    }
+
+    public tinyPythonCompiler(CompilerOptions options) {
+        this.options = options;
+        reset();
+    }
+
+    /**
+     * 다음 컴파일을 위해 상태를 처음으로 되돌린다.
+     * 이전 결과(ClassCode, peephole 통계)는 새 객체로 바꿀 뿐 지우지 않으므로 계속 사용할 수 있다.
+     */
+    public void reset() {
+        convertedProperty = new ParseTreeProperty<>();
+        methodProperty = new ParseTreeProperty<>();
+        methods = new ArrayList<>();
+        fields = new ArrayList<>();
+        symbolTable.clear();
         symbolTable.push(new HashMap<>()); // 초기 symbol 추가
         symbolTable.peek().put("args", new Symbol("args", 0));
+        loopState.clear();
+        labelIdx = 0;
+        currentDef = null;
+        functionHead = null;
+        result = null;
+        folder = new ConstantFolder();
+        peepholeSavings = new LinkedHashMap<>();
+        previousBuild = null;
+        currentBuild = null;
+        mainFingerprint = null;
+        reusedMain = null;
+        outerVariables = List.of();
+    }
+
+    /**
+     * 소스 하나를 parse 해서 컴파일한다. 같은 객체로 여러 번 호출할 수 있다.
+     * 한 객체를 여러 thread에서 동시에 쓸 수는 없으므로 thread마다 따로 만든다.
+     */
+    public ClassCode compile(CharStream source) {
+        return compile(source, "Test");
+    }
+
+    public ClassCode compile(CharStream source, String className) {
+        return compile(source, className, null);
+    }
+
+    /**
+     * 증분 컴파일. 이전 빌드와 fingerprint가 같은 함수 정의, main body는 변환을 건너뛰고 저장된 IR을 쓴다.
+     * 이번 빌드 결과는 {@link #getBuildArtifact()}로 얻어 다음 컴파일에 넘긴다.
+     */
+    public ClassCode compile(CharStream source, String className, BuildArtifact previous) {
+        reset();
+        this.className = className;
+        if (previous != null) {
+            previousBuild = previous;
+            currentBuild = new BuildArtifact();
+        }
+        new SectionWalker().walk(this, SourceParser.parse(source));
+        return result;
+    }
+
+    // 이미 parse 한 tree를 컴파일한다 (interpreter가 가진 tree를 다시 쓸 때)
+    public ClassCode compile(tinyPythonParser.ProgramContext tree, String className) {
+        reset();
+        this.className = className;
+        new SectionWalker().walk(this, tree);
+        return result;
+    }
+
+    /**
+     * REPL 입력 하나를 컴파일한다. main body는 새 scope 대신 mainScope를 쓰므로
+     * 이전 입력에서 만든 변수는 같은 지역 변수 번호를 유지하고, 새 변수는 이어지는 번호를 받는다.
+     */
+    public ClassCode compile(tinyPythonParser.ProgramContext tree, String className, HashMap<String, Symbol> mainScope) {
+        reset();
+        this.className = className;
+        symbolTable.clear();
+        symbolTable.push(mainScope);
+        outerVariables = new ArrayList<>(mainScope.keySet()); // 이번 입력에서 한 번만 할당해도 이전 값이 남아 있다
+        new SectionWalker().walk(this, tree);
+        return result;
+    }
+
+    // 증분 컴파일의 이번 빌드 결과 (증분 컴파일이 아니면 null)
+    public BuildArtifact getBuildArtifact() {
+        return currentBuild;
+    }
+
+    // 디버그 출력 위치 변경, 서버처럼 여러 컴파일이 동시에 도는 곳에서는 따로 모으거나 버린다
+    public void setLog(PrintStream log) {
+        this.log = log;
+    }
+
+    // 컴파일 결과, walk가 끝난 뒤에 사용한다
+    public ClassCode getResult() {
+        return result;
+    }
+
+    // method별 peephole 최적화로 줄어든 바이트 수
+    public LinkedHashMap<String, Integer> getPeepholeSavings() {
+        return peepholeSavings;
     }
 
     @Override
     public void exitProgram(tinyPythonParser.ProgramContext ctx) throws IOException {
         super.exitProgram(ctx);
-        // 기본 Java byte code 시작 부분
-        final String BASE_JVM =
-                ".class public Test\n" +
-                        ".super java/lang/Object\n\n" +
-                        "; standard initializer\n" +
-                        ".method public <init>()V\n" +
-                        "aload_0\n" +
-                        "invokenonvirtual java/lang/Object/<init>()V\n" +
-                        "return\n" +
-                        ".end method\n\n";
-        convertedProperty.put(ctx, convertedProperty.get(ctx.file_input()));
-
-        String program = BASE_JVM + convertedProperty.get(ctx.file_input());
-        // Test.j에 java bytecode로 변환된 텍스트를 쓴다.
-        File outputFile = new File("Test.j");
-        if (!outputFile.exists()) outputFile.createNewFile();
-        BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile));
-        writer.write(program);
-        writer.flush();
-        writer.close();
+        if (options.isEliminateDeadCode()) {
+            for (MethodCode method : methods) DeadCodeEliminator.eliminate(method.getBody()); // 도달할 수 없는 코드 제거
+        }
+        if (options.getInlineBudget() > 0) {
+            new FunctionInliner(className, methods, options.getInlineBudget()).inlineAll(methods); // 작은 함수 펼치기
+        }
+        if (options.isMemoize()) {
+            new Memoizer(className, methods, options.getMemoCapacity()).apply(methods, fields); // 순수 재귀 함수 결과 cache
+        }
+
+        PeepholeOptimizer peephole = new PeepholeOptimizer(options.getPeepholeRules());
+        for (MethodCode method : methods) {
+            if (options.isEliminateDeadCode()) DeadCodeEliminator.eliminate(method.getBody()); // 도달할 수 없는 코드 제거
+            peepholeSavings.put(method.getName(), peephole.optimize(method)); // 명령어 단위 최적화
+            if (options.isEliminateDeadCode()) DeadCodeEliminator.eliminate(method.getBody()); // 분기 정리 후 남은 코드 제거
+            FrameSizeAnalyzer.analyze(method); // 각 method의 실제 stack, local 크기 계산
+        }
+        // 출력 형식(Jasmin 텍스트, class 파일)은 backend에서 결정한다
+        result = new ClassCode(className, fields, methods);
     }
 
     @Override
-    public void exitFile_input(tinyPythonParser.File_inputContext ctx) throws IOException {
-        super.exitFile_input(ctx);
+    public void enterFile_input(tinyPythonParser.File_inputContext ctx) {
+        super.enterFile_input(ctx);
+        if (previousBuild != null) {
+            // main body가 이전 빌드와 같으면 statement 변환을 건너뛴다
+            mainFingerprint = BuildArtifact.fingerprint(ctx.stmt(), options, className);
+            reusedMain = previousBuild.find(mainFingerprint);
+        }
+    }
 
-        String DEFS_SNIPPET = convertedProperty.get(ctx.defs());
+    // 이전 빌드의 main을 쓰므로 main body의 statement는 방문하지 않아도 되는지
+    boolean isMainReused() {
+        return reusedMain != null;
+    }
 
-        // main method의 header
-        final String MAIN_SNIPPET =
-                ".method public static main([Ljava/lang/String;)V\n" +
-                        "    .limit stack " + BASE_SIZE + "\n" + // stack과 local은 기본적으로 16으로 할당
-                        "    .limit locals " + BASE_SIZE + "\n";
+    @Override
+    public void exitFile_input(tinyPythonParser.File_inputContext ctx) throws IOException {
+        super.exitFile_input(ctx);
+        if (reusedMain != null) {
+            log.println("<Main body> (이전 빌드 재사용)");
+            methods.add(reusedMain);
+            currentBuild.record(mainFingerprint, reusedMain, true);
+            symbolTable.pop();
+            return;
+        }
 
         // 입력의 각 statement 변환
-        StringBuilder mainBody = new StringBuilder();
-        System.out.println("<Main body>");
+        InsnList mainBody = new InsnList();
+        log.println("<Main body>");
         // 변환된 stmt 모두 결합
         for (int i = 0; i < ctx.stmt().size(); ++i) {
-            System.out.println(convertedProperty.get(ctx.stmt(i)));
-            mainBody.append(convertedProperty.get(ctx.stmt(i)));
-            convertedProperty.put(ctx, convertedProperty.get(ctx.stmt(i)));
+            log.print(convertedProperty.get(ctx.stmt(i)));
+            mainBody.addAll(convertedProperty.get(ctx.stmt(i)));
         }
+        mainBody.add(Insn.simple(Opcode.RETURN));
 
-        // 전체 JVM 코드 구성하기
-        String wholeProgram = DEFS_SNIPPET + MAIN_SNIPPET + mainBody + "return\n.end method";
-        convertedProperty.put(ctx, wholeProgram);
+        // main method 추가, stack과 local 크기는 exitProgram에서 계산한다
+        MethodCode main = new MethodCode("main", "([Ljava/lang/String;)V", mainBody, symbolTable.peek().size());
+        methods.add(main);
+        if (currentBuild != null) currentBuild.record(mainFingerprint, main, false);
+        convertedProperty.put(ctx, mainBody);
 
         // main symbol stack pop
         if (!symbolTable.isEmpty()) symbolTable.pop();
@@ -132,7 +271,7 @@ public class tinyPythonCompiler extends tinyPythonBaseListener {
         super.exitAssignment_stmt(ctx);
         // 예시 a = 10
         String ident = ctx.NAME().getText(); // a: 변수 이름
-        String expr = convertedProperty.get(ctx.expr()); // expression
+        InsnList expr = convertedProperty.get(ctx.expr()); // expression
 
         // ident가 새로운 변수인지 판단
         boolean isNewIdentifier = !symbolTable.peek().containsKey(ident);
@@ -140,18 +279,60 @@ public class tinyPythonCompiler extends tinyPythonBaseListener {
             int index = symbolTable.peek().size(); // index 증가
             symbolTable.peek().put(ident, new Symbol("int", index)); // 정수 추가
         }
+        int index = symbolTable.peek().get(ident).getIndex();
+        Integer increment = isNewIdentifier || !options.isUseIinc() ? null : selfIncrement(ident, ctx.expr());
+        if (increment != null) {
+            // x = x + c 형태는 iinc 하나로 처리
+            convertedProperty.put(ctx, new InsnList(Insn.iinc(index, increment)));
+            return;
+        }
         // 할당문에 대한 bytecode 생성 및 저장
-        String code = expr + "istore " + (symbolTable.peek().get(ident).getIndex()) + "\n";
+        InsnList code = expr.add(Insn.var(Opcode.ISTORE, index));
         convertedProperty.put(ctx, code);
     }
 
+    // expr이 ident + c, c + ident, ident - c 형태이면 증가량 c (또는 -c), 아니면 null
+    private Integer selfIncrement(String ident, tinyPythonParser.ExprContext expr) {
+        while (expr.expr().size() == 1) expr = expr.expr(0); // 괄호 제거
+        if (expr.expr().size() != 2) return null;
+
+        boolean isAdd = expr.getChild(1).getText().equals("+");
+        Integer right = constantOf(expr.expr(1));
+        long increment;
+        if (right != null && isVariable(expr.expr(0), ident)) {
+            increment = isAdd ? (long) right : -(long) right;
+        } else if (isAdd && isVariable(expr.expr(1), ident) && constantOf(expr.expr(0)) != null) {
+            increment = constantOf(expr.expr(0));
+        } else {
+            return null;
+        }
+        // iinc가 표현할 수 있는 범위 (wide iinc 포함)
+        if (increment < Short.MIN_VALUE || increment > Short.MAX_VALUE) return null;
+        return (int) increment;
+    }
+
+    // 상수 값, 상수 계산을 끄면 숫자 literal만 상수로 본다
+    private Integer constantOf(tinyPythonParser.ExprContext expr) {
+        if (options.isFoldConstants()) return folder.valueOf(expr);
+        return expr.NUMBER() != null ? Integer.valueOf(expr.NUMBER().getText()) : null;
+    }
+
+    // expr이 괄호를 제외하면 변수 ident 하나인지 확인
+    private static boolean isVariable(tinyPythonParser.ExprContext expr, String ident) {
+        while (expr.expr().size() == 1) expr = expr.expr(0);
+        return expr.NAME() != null && expr.opt_paren().CLOSE_PAREN() == null && expr.NAME().getText().equals(ident);
+    }
+
     @Override
     public void exitExpr(tinyPythonParser.ExprContext ctx) {
         super.exitExpr(ctx);
-        String code = "";
+        InsnList code = new InsnList();
+        Integer constant = options.isFoldConstants() ? folder.valueOf(ctx) : null; // 컴파일 시점에 계산되는 값
 
-        if (ctx.NUMBER() != null) {
-            code = "ldc " + ctx.NUMBER().getText() + "\n"; // 숫자 literal일 때 처리
+        if (constant != null) {
+            code.add(Insn.ldc(constant)); // 상수 식은 계산된 값 하나로 대체
+        } else if (ctx.NUMBER() != null) {
+            code.add(Insn.ldc(Integer.parseInt(ctx.NUMBER().getText()))); // 숫자 literal일 때 처리
         } else if (ctx.NAME() != null) {
             // Name이 있는 것은 함수 호출의 의미 또는 변수 가져오는 경우
             String ident = ctx.NAME().getText();
@@ -162,9 +343,9 @@ public class tinyPythonCompiler extends tinyPythonBaseListener {
                 // 단순히 변수를 가져오는 경우
                 Symbol symbol = symbolTable.peek().get(ident); // identifier에 든 값을 operand stack에 로드
                 if (symbol != null) {
-                    code = "iload " + symbol.getIndex() + "\n";
+                    code.add(Insn.var(Opcode.ILOAD, symbol.getIndex()));
                 } else {
-                    System.out.println("undefined identifier");
+                    log.println("undefined identifier");
                 }
             }
         } else if (ctx.expr().size() == 1) {
@@ -172,44 +353,54 @@ public class tinyPythonCompiler extends tinyPythonBaseListener {
             code = convertedProperty.get(ctx.expr(0));
         } else if (ctx.expr().size() == 2) {
             // 이항 연산
-            String lExpr = convertedProperty.get(ctx.expr(0));
-            String rExpr = convertedProperty.get(ctx.expr(1));
+            InsnList lExpr = convertedProperty.get(ctx.expr(0));
+            InsnList rExpr = convertedProperty.get(ctx.expr(1));
             String op = ctx.getChild(1).getText(); // 연산자
-            code = lExpr + rExpr + convertOpToInst(op); // 연산자 op에 따른 명령어
+            if (options.isFoldConstants() && isZero(ctx.expr(1))) {
+                code = lExpr; // x + 0, x - 0
+            } else if (options.isFoldConstants() && op.equals("+") && isZero(ctx.expr(0))) {
+                code = rExpr; // 0 + x
+            } else {
+                code = lExpr.addAll(rExpr).add(Insn.simple(convertOpToInst(op))); // 연산자 op에 따른 명령어
+            }
         }
 
         convertedProperty.put(ctx, code);
     }
 
+    // 값이 0으로 계산되는 expression인지 확인
+    private boolean isZero(tinyPythonParser.ExprContext expr) {
+        Integer value = folder.valueOf(expr);
+        return value != null && value == 0;
+    }
+
     // 연산자를 기준으로 bytecode로 변환한다
-    private String convertOpToInst(String op) {
+    private Opcode convertOpToInst(String op) {
 
         if (op.equals("+")) {
-            return "iadd\n";
-        } else if (op.equals("-")) {
-            return "isub\n";
+            return Opcode.IADD;
         }
-        return "";
+        return Opcode.ISUB; // 문법상 +, - 만 존재한다
     }
 
-    private String makeFunctionCall(String ident, tinyPythonParser.Opt_parenContext optParen) {
+    private InsnList makeFunctionCall(String ident, tinyPythonParser.Opt_parenContext optParen) {
         int numOfArgs = optParen.expr().size();
-        StringBuilder code = new StringBuilder();
+        InsnList code = new InsnList();
         String signature = "";
 
         // 인자 전달이 없는 경우 expr 변환 과정 생략한다
         // 인지가 있으면 해당 인자만큼 I를 추가한다. (인자는 int 뿐임)
         if (numOfArgs > 0) {
             for (tinyPythonParser.ExprContext expr : optParen.expr()) {
-                code.append(convertedProperty.get(expr));
+                code.addAll(convertedProperty.get(expr));
                 signature += "I";
             }
         }
 
         // signature 정의
-        signature = ident + "(" + signature + ")I"; // 기본 return type는 int라고 가정
-        code.append("invokestatic Test/").append(signature).append("\n");
-        return code.toString();
+        signature = "(" + signature + ")I"; // 기본 return type는 int라고 가정
+        code.add(Insn.member(Opcode.INVOKESTATIC, className, ident, signature));
+        return code;
     }
 
     // 출력 처리
@@ -217,20 +408,21 @@ public class tinyPythonCompiler extends tinyPythonBaseListener {
     public void exitPrint_stmt(tinyPythonParser.Print_stmtContext ctx) {
         super.exitPrint_stmt(ctx);
         // System.out 인스턴스 가져오기
-        final String getPrintStreamInst = "getstatic java/lang/System/out Ljava/io/PrintStream;\n";
-        final String printArg = convertedProperty.get(ctx.print_arg()); // 출력 인자값 가져오기
-        String getDoPrintInst;
+        final Insn getPrintStreamInst = Insn.member(Opcode.GETSTATIC, "java/lang/System", "out", "Ljava/io/PrintStream;");
+        final InsnList printArg = convertedProperty.get(ctx.print_arg()); // 출력 인자값 가져오기
+        Insn getDoPrintInst;
 
         if (ctx.print_arg().expr() != null) {
             // 인자가 expression인 경우
             // 인자를 정수로 받는 println 호출
-            getDoPrintInst = "invokevirtual java/io/PrintStream/println(I)V\n";
+            getDoPrintInst = Insn.member(Opcode.INVOKEVIRTUAL, "java/io/PrintStream", "println", "(I)V");
         } else {
             // 인자가 string인 경우
             // 인자를 string으로 받는 println 호출
-            getDoPrintInst = "invokevirtual java/io/PrintStream/println(Ljava/lang/String;)V\n";
+            getDoPrintInst = Insn.member(Opcode.INVOKEVIRTUAL, "java/io/PrintStream", "println", "(Ljava/lang/String;)V");
         }
-        convertedProperty.put(ctx, getPrintStreamInst + printArg + getDoPrintInst);
+        InsnList code = new InsnList(getPrintStreamInst).addAll(printArg).add(getDoPrintInst);
+        convertedProperty.put(ctx, code);
     }
 
     // 프린트할 인자에 대한 처리
@@ -242,9 +434,7 @@ public class tinyPythonCompiler extends tinyPythonBaseListener {
             convertedProperty.put(ctx, convertedProperty.get(ctx.expr()));
         } else {
             // string을 출력하는 경우
-            String str = ctx.STRING().getText(); // string literal 가져오기
-            String code = "ldc " + str + "\n";
-            convertedProperty.put(ctx, code);
+            convertedProperty.put(ctx, new InsnList(Insn.ldc(stringValue(ctx.STRING().getText()))));
         }
     }
 
@@ -252,14 +442,68 @@ public class tinyPythonCompiler extends tinyPythonBaseListener {
     @Override
     public void exitDefs(tinyPythonParser.DefsContext ctx) {
         super.exitDefs(ctx);
-        StringBuilder defs = new StringBuilder();
-
         for (int i = 0; i < ctx.def_stmt().size(); ++i) {
-            // 각 함수 정의가 만든 bytecode 추가
-            defs.append(convertedProperty.get(ctx.def_stmt(i)));
+            // 각 함수 정의가 만든 method 추가
+            methods.add(methodProperty.get(ctx.def_stmt(i)));
+        }
+
+        // 이후 main body의 statement가 처리되므로 main scope의 할당 정보 수집
+        tinyPythonParser.File_inputContext fileInput = (tinyPythonParser.File_inputContext) ctx.getParent();
+        folder.enterScope(fileInput.stmt(), outerVariables);
+    }
+
+    // 증분 컴파일이거나 함수 정의가 많으면 함수마다 따로 변환한다
+    boolean shouldCompileDefsSeparately(tinyPythonParser.DefsContext ctx) {
+        return previousBuild != null || isParallel(ctx.def_stmt().size());
+    }
+
+    /**
+     * 일정 개수 이상일 때만 병렬로 변환한다, 적으면 thread 분배 비용이 더 크다.
+     * 이미 ForkJoin worker에서 도는 중이면 (batch 컴파일처럼 바깥이 병렬이면) 나누지 않는다.
+     * worker가 안쪽 작업을 기다리는 동안 같은 pool의 다른 작업을 실행할 수 있어, 그 작업이 이 compiler를 다시 쓸 수 있기 때문이다.
+     */
+    private boolean isParallel(int numOfDefs) {
+        return options.isParallelDefs() && numOfDefs >= PARALLEL_DEF_MIN && !ForkJoinTask.inForkJoinPool();
+    }
+
+    /**
+     * 각 함수 정의를 독립된 compiler(symbol table, label 번호, 상수 정보를 따로 가짐)로 변환한다.
+     * 증분 컴파일이면 이전 빌드와 fingerprint가 같은 함수는 저장된 IR을 쓰고, 나머지만 변환한다.
+     * 결과 method와 디버그 출력은 원래 순서대로 모은다.
+     */
+    void compileDefsSeparately(tinyPythonParser.DefsContext ctx) {
+        List<tinyPythonParser.Def_stmtContext> defs = ctx.def_stmt();
+        String[] fingerprints = new String[defs.size()];
+        MethodCode[] compiled = new MethodCode[defs.size()];
+        boolean[] reused = new boolean[defs.size()];
+        ByteArrayOutputStream[] logs = new ByteArrayOutputStream[defs.size()];
+
+        if (previousBuild != null) {
+            for (int i = 0; i < defs.size(); ++i) {
+                fingerprints[i] = BuildArtifact.fingerprint(List.of(defs.get(i)), options, className);
+                compiled[i] = previousBuild.find(fingerprints[i]);
+                reused[i] = compiled[i] != null;
+            }
         }
 
-        convertedProperty.put(ctx, defs.toString());
+        int[] changed = IntStream.range(0, defs.size()).filter(i -> !reused[i]).toArray();
+        IntStream work = Arrays.stream(changed);
+        if (isParallel(changed.length)) work = work.parallel();
+        work.forEach(i -> {
+            tinyPythonCompiler worker = new tinyPythonCompiler(options);
+            worker.className = className;
+            logs[i] = new ByteArrayOutputStream();
+            worker.log = new PrintStream(logs[i], true, StandardCharsets.UTF_8);
+            ParseTreeWalker.DEFAULT.walk(worker, defs.get(i));
+            compiled[i] = worker.methodProperty.get(defs.get(i));
+        });
+
+        for (int i = 0; i < defs.size(); ++i) {
+            methodProperty.put(defs.get(i), compiled[i]);
+            if (currentBuild != null) currentBuild.record(fingerprints[i], compiled[i], reused[i]);
+            if (reused[i]) log.println("<Def " + defs.get(i).NAME().getText() + "> (이전 빌드 재사용)");
+            else log.print(logs[i].toString(StandardCharsets.UTF_8));
+        }
     }
 
     // 함수 정의 시작 시
@@ -268,7 +512,7 @@ public class tinyPythonCompiler extends tinyPythonBaseListener {
         super.enterDef_stmt(ctx);
 
         String funcName = ctx.NAME().getText(); // 함수명
-        System.out.println("<Def " + funcName + ">");
+        log.println("<Def " + funcName + ">");
         symbolTable.push(new HashMap<>()); // 새 symbol table 추가
 
         // 새 symbol에 인자 정보 추가
@@ -280,6 +524,9 @@ public class tinyPythonCompiler extends tinyPythonBaseListener {
                 localSymbol.put(ctx.args().NAME(i).getText(), new Symbol("int", i));
             }
         }
+        folder.enterScope(List.of(ctx.suite()), localSymbol.keySet()); // 함수 body의 할당 정보 수집
+        currentDef = ctx;
+        functionHead = new Label("Head" + (labelIdx++));
     }
 
     // 함수 정의 처리 끝날 시
@@ -288,7 +535,8 @@ public class tinyPythonCompiler extends tinyPythonBaseListener {
         super.exitDef_stmt(ctx);
 
         String funcName = ctx.NAME().getText(); // 함수명
-        String code = convertedProperty.get(ctx.suite()); // 함수의 body
+        InsnList code = new InsnList(Insn.label(functionHead)); // 꼬리 호출이 돌아올 위치
+        code.addAll(convertedProperty.get(ctx.suite())); // 함수의 body
         String numOfArgs = ""; // 인자 수
 
         // 함수 인자수 표기
@@ -296,43 +544,63 @@ public class tinyPythonCompiler extends tinyPythonBaseListener {
             numOfArgs += "I";
         }
 
-        // 함수 정의에 대한 bytecode 생성함
+        // 함수 정의에 대한 method 생성함
         // static method만 존재 및 int만 반환한다고 가정함
-        String definition = ".method public static " + funcName + "(" + numOfArgs + ")I\n " +
-                "    .limit stack " + BASE_SIZE + "\n" +
-                "    .limit locals " + BASE_SIZE + "\n" +
-                code +
-                ".end method\n\n";
+        MethodCode method = new MethodCode(funcName, "(" + numOfArgs + ")I", code, symbolTable.peek().size());
 
         symbolTable.pop(); // symbol table 종료
-        convertedProperty.put(ctx, definition); // 생성된 bytecode 저장
-        System.out.println("<End def>\n");
+        currentDef = null;
+        methodProperty.put(ctx, method); // 생성된 method 저장
+        log.println("<End def>\n");
     }
 
     // return문 처리
     @Override
     public void exitReturn_stmt(tinyPythonParser.Return_stmtContext ctx) {
         super.exitReturn_stmt(ctx);
-        String expr = convertedProperty.get(ctx.expr());
-        String code = expr + "ireturn\n"; // return type은 정수형만 한다고 가정
+        InsnList code = new InsnList();
+        if (ctx.expr() != null) code.addAll(convertedProperty.get(ctx.expr()));
+
+        if (options.isEliminateTailCalls() && isSelfTailCall(ctx.expr())) {
+            // return f(...) 가 자기 자신 호출이면 invokestatic 대신
+            // 계산된 인자를 parameter 자리에 다시 저장하고 함수 시작 위치로 돌아간다
+            code.remove(code.getLast()); // invokestatic 제거, 인자 값만 stack에 남는다
+            int numOfArgs = currentDef.args().NAME().size();
+            for (int i = numOfArgs - 1; i >= 0; --i) {
+                code.add(Insn.var(Opcode.ISTORE, i));
+            }
+            code.add(Insn.jump(Opcode.GOTO, functionHead));
+            convertedProperty.put(ctx, code);
+            return;
+        }
+        code.add(Insn.simple(Opcode.IRETURN)); // return type은 정수형만 한다고 가정
         convertedProperty.put(ctx, code);
     }
 
+    // return할 expression이 현재 함수를 같은 인자 수로 호출하는지 확인
+    private boolean isSelfTailCall(tinyPythonParser.ExprContext expr) {
+        if (currentDef == null || expr == null) return false;
+        while (expr.expr().size() == 1) expr = expr.expr(0); // 괄호 제거
+        if (expr.NAME() == null || expr.opt_paren().CLOSE_PAREN() == null) return false;
+        return expr.NAME().getText().equals(currentDef.NAME().getText())
+                && expr.opt_paren().expr().size() == currentDef.args().NAME().size();
+    }
+
     // suite 처리
     @Override
     public void exitSuite(tinyPythonParser.SuiteContext ctx) {
         super.exitSuite(ctx);
-        System.out.println("[Suite ends]");
+        log.println("[Suite ends]");
         if (ctx.simple_stmt() != null) {
             // simple statement 처리
             convertedProperty.put(ctx, convertedProperty.get(ctx.simple_stmt()));
         } else {
             // 여러 statement가 결합된 코드의 처리
-            StringBuilder code = new StringBuilder();
+            InsnList code = new InsnList();
             for (tinyPythonParser.StmtContext stmt : ctx.stmt()) {
-                code.append(convertedProperty.get(stmt)); // bytecode로 변환된 statements 추가
+                code.addAll(convertedProperty.get(stmt)); // bytecode로 변환된 statements 추가
             }
-            convertedProperty.put(ctx, code.toString());
+            convertedProperty.put(ctx, code);
         }
     }
 
@@ -341,70 +609,149 @@ public class tinyPythonCompiler extends tinyPythonBaseListener {
     public void exitIf_stmt(tinyPythonParser.If_stmtContext ctx) {
         super.exitIf_stmt(ctx);
 
-        String ifTest = convertedProperty.get(ctx.test(0)); // if test 결과
-        String ifSuite = convertedProperty.get(ctx.suite(0)); // if에서 처리되는 suite
-        String escLabel = "Esc" + labelIdx; // 탈출 라벨
-        String nextBranch = "Branch" + (labelIdx++); // elif, else로 분기시 사용되는 라벨
-        StringBuilder code = new StringBuilder();
+        InsnList ifTest = convertedProperty.get(ctx.test(0)); // if test 결과
+        InsnList ifSuite = convertedProperty.get(ctx.suite(0)); // if에서 처리되는 suite
+        Label escLabel = new Label("Esc" + labelIdx); // 탈출 라벨
+        Label nextBranch = new Label("Branch" + (labelIdx++)); // elif, else로 분기시 사용되는 라벨
+        InsnList code = new InsnList();
 
         // if문 bytecode 변환
-        code.append(ifTest).append(nextBranch).append("\n") // 조건 확인
-                .append(ifSuite) // if 만족시 실행부분
-                .append("goto ").append(escLabel).append("\n") // body 실행 후 탈출하는 라벨
-                .append(nextBranch).append(":\n"); // 다음 branch 이동
+        setBranchTarget(ifTest, nextBranch); // 조건 확인
+        code.addAll(ifTest)
+                .addAll(ifSuite) // if 만족시 실행부분
+                .add(Insn.jump(Opcode.GOTO, escLabel)) // body 실행 후 탈출하는 라벨
+                .add(Insn.label(nextBranch)); // 다음 branch 이동
 
         // test의 수가 suite의 수보다 적으면 else가 들어갔다는 의미이다.
         boolean isElseIncluded = ctx.test().size() < ctx.suite().size();
 
         // elif 처리
         for (int i = 1; i < ctx.test().size(); ++i) {
-            String elifTest = convertedProperty.get(ctx.test(i)); //elif test 결과
-            String elifSuite = convertedProperty.get(ctx.suite(i)); // elif에서 처리되는 suite
-            nextBranch = (i == ctx.test().size() - 1 && !isElseIncluded) ? escLabel : "Branch" + (labelIdx++);
+            InsnList elifTest = convertedProperty.get(ctx.test(i)); //elif test 결과
+            InsnList elifSuite = convertedProperty.get(ctx.suite(i)); // elif에서 처리되는 suite
+            nextBranch = (i == ctx.test().size() - 1 && !isElseIncluded) ? escLabel : new Label("Branch" + (labelIdx++));
 
             // elif 조건 및 body 처리
-            code.append(elifTest).append(nextBranch).append("\n")
-                    .append(elifSuite)
-                    .append("goto ").append(escLabel).append("\n")
-                    .append(nextBranch).append(":\n");
+            setBranchTarget(elifTest, nextBranch);
+            code.addAll(elifTest)
+                    .addAll(elifSuite)
+                    .add(Insn.jump(Opcode.GOTO, escLabel));
+            if (nextBranch != escLabel) code.add(Insn.label(nextBranch));
         }
 
         // else 처리
         if (isElseIncluded) {
-            String elseSuiteCode = convertedProperty.get(ctx.suite(ctx.suite().size() - 1));
-            code.append(elseSuiteCode);
+            InsnList elseSuiteCode = convertedProperty.get(ctx.suite(ctx.suite().size() - 1));
+            code.addAll(elseSuiteCode);
         }
 
         // end label 처리
-        code.append(escLabel).append(":\n");
-        convertedProperty.put(ctx, code.toString());
+        code.add(Insn.label(escLabel));
+        convertedProperty.put(ctx, code);
     }
 
     // 비교 결과인 test의 처리
     @Override
     public void exitTest(tinyPythonParser.TestContext ctx) {
         super.exitTest(ctx);
-        String e1 = convertedProperty.get(ctx.expr(0)); // 비교 대상인 첫번째 expression
-        String e2 = convertedProperty.get(ctx.expr(1)); // 비교 대상인 두번째 expression
+        InsnList e1 = convertedProperty.get(ctx.expr(0)); // 비교 대상인 첫번째 expression
+        InsnList e2 = convertedProperty.get(ctx.expr(1)); // 비교 대상인 두번째 expression
         String op = ctx.comp_op().getText(); // 비교 연산자
-        String inst;
-        StringBuilder code = new StringBuilder();
+        Integer c1 = constantOf(ctx.expr(0));
+        Integer c2 = constantOf(ctx.expr(1));
+        Opcode inst;
+        InsnList code = new InsnList();
+
+        // 분기할 label은 if, while 처리 시 지정한다.
+        if (options.isFoldConstants() && c1 != null && c2 != null) {
+            // 양쪽이 상수이면 결과가 정해져 있다. 항상 참이면 분기 없음, 항상 거짓이면 무조건 분기
+            if (!compare(op, c1, c2)) code.add(Insn.jump(Opcode.GOTO, null));
+            convertedProperty.put(ctx, code);
+            return;
+        }
 
-        code.append(e1).append(e2); // 비교할 두 변환된 expression 추가
+        if (options.isCompareWithZero() && c2 != null && c2 == 0) {
+            // x op 0 은 x 하나만 stack에 올려서 비교
+            code.addAll(e1);
+            inst = invertBranch(op, true);
+        } else if (options.isCompareWithZero() && c1 != null && c1 == 0) {
+            // 0 op x 는 x swap(op) 0 으로 바꿔서 비교
+            code.addAll(e2);
+            inst = invertBranch(swapOperands(op), true);
+        } else {
+            code.addAll(e1).addAll(e2); // 비교할 두 변환된 expression 추가
+            inst = invertBranch(op, false);
+        }
+        code.add(Insn.jump(inst, null));
+        convertedProperty.put(ctx, code);
+    }
 
-        // 조견 연산자 따른 branch 구문 추가
-        // 이때 표시된 연산자와 정반대의 기능을 하는 것으로 변환한다.
-        switch (op) {
-            case "==" -> inst = "if_icmpne ";
-            case "!=" -> inst = "if_icmpeq ";
-            case "<" -> inst = "if_icmpge ";
-            case ">" -> inst = "if_icmple ";
-            case "<=" -> inst = "if_icmpgt ";
-            case ">=" -> inst = "if_icmplt ";
-            default -> inst = "";
+    // 조견 연산자 따른 branch 명령어
+    // 이때 표시된 연산자와 정반대의 기능을 하는 것으로 변환한다.
+    private static Opcode invertBranch(String op, boolean withZero) {
+        return switch (op) {
+            case "==" -> withZero ? Opcode.IFNE : Opcode.IF_ICMPNE;
+            case "!=" -> withZero ? Opcode.IFEQ : Opcode.IF_ICMPEQ;
+            case "<" -> withZero ? Opcode.IFGE : Opcode.IF_ICMPGE;
+            case ">" -> withZero ? Opcode.IFLE : Opcode.IF_ICMPLE;
+            case "<=" -> withZero ? Opcode.IFGT : Opcode.IF_ICMPGT;
+            default -> withZero ? Opcode.IFLT : Opcode.IF_ICMPLT; // ">="
+        };
+    }
+
+    // 두 operand의 위치를 바꿨을 때 같은 의미가 되는 연산자
+    private static String swapOperands(String op) {
+        return switch (op) {
+            case "<" -> ">";
+            case ">" -> "<";
+            case "<=" -> ">=";
+            case ">=" -> "<=";
+            default -> op; // ==, !=
+        };
+    }
+
+    // 비교 연산 결과
+    static boolean compare(String op, int a, int b) {
+        return switch (op) {
+            case "==" -> a == b;
+            case "!=" -> a != b;
+            case "<" -> a < b;
+            case ">" -> a > b;
+            case "<=" -> a <= b;
+            default -> a >= b; // ">="
+        };
+    }
+
+    /**
+     * string literal의 값. 양 끝의 따옴표를 떼고 escape(\n, \t 등 Jasmin이 처리하던 것)를 실제 문자로 바꾼다.
+     * 모르는 escape는 backslash를 포함해 그대로 둔다.
+     */
+    static String stringValue(String literal) {
+        StringBuilder value = new StringBuilder();
+        for (int i = 1; i < literal.length() - 1; ++i) {
+            char c = literal.charAt(i);
+            if (c != '\\' || i + 1 == literal.length() - 1) {
+                value.append(c);
+                continue;
+            }
+            char next = literal.charAt(++i);
+            switch (next) {
+                case 'n' -> value.append('\n');
+                case 't' -> value.append('\t');
+                case 'r' -> value.append('\r');
+                case 'b' -> value.append('\b');
+                case 'f' -> value.append('\f');
+                case '\\', '"', '\'' -> value.append(next);
+                default -> value.append('\\').append(next);
+            }
         }
-        code.append(inst);
-        convertedProperty.put(ctx, code.toString());
+        return value.toString();
+    }
+
+    // test 결과의 분기 대상 지정, 항상 참인 test는 분기 명령어가 없다
+    private static void setBranchTarget(InsnList test, Label target) {
+        Insn last = test.getLast();
+        if (last != null && last.getOp().isJump() && last.getLabel() == null) last.setLabel(target);
     }
 
     // While loop의 시작 처리
@@ -412,9 +759,9 @@ public class tinyPythonCompiler extends tinyPythonBaseListener {
     public void enterWhile_stmt(tinyPythonParser.While_stmtContext ctx) {
         super.enterWhile_stmt(ctx);
         // 새 loop 라벨 생성
-        String headLabel = "LoopHead" + labelIdx;
-        String endLabel = "LoopEnd" + (labelIdx++);
-        loopState.push(new String[]{headLabel, endLabel}); // 새 loop label 추가
+        Label headLabel = new Label("LoopHead" + labelIdx);
+        Label endLabel = new Label("LoopEnd" + (labelIdx++));
+        loopState.push(new Label[]{headLabel, endLabel}); // 새 loop label 추가
     }
 
     // while loop의 종료 처리
@@ -422,21 +769,23 @@ public class tinyPythonCompiler extends tinyPythonBaseListener {
     public void exitWhile_stmt(tinyPythonParser.While_stmtContext ctx) {
         super.exitWhile_stmt(ctx);
 
-        System.out.println("[While loop]");
+        log.println("[While loop]");
         // 현재 loop의 시작, 종료 레이블 가져오기
-        String headLabel = loopState.peek()[0];
-        String endLabel = loopState.peek()[1];
-
-        String loopTest = convertedProperty.get(ctx.test());
-        String loopSuite = convertedProperty.get(ctx.suite());
-        StringBuilder code = new StringBuilder();
-        code.append(headLabel).append(":\n")
-                .append(loopTest).append(endLabel).append("\n")
-                .append(loopSuite)
-                .append("goto ").append(headLabel).append("\n")// Continue loop
-                .append(endLabel).append(":\n");
-
-        convertedProperty.put(ctx, code.toString());
+        Label headLabel = loopState.peek()[0];
+        Label endLabel = loopState.peek()[1];
+
+        InsnList loopTest = convertedProperty.get(ctx.test());
+        InsnList loopSuite = convertedProperty.get(ctx.suite());
+        InsnList code = new InsnList();
+        setBranchTarget(loopTest, endLabel);
+        code.add(Insn.label(headLabel))
+                .addAll(loopTest)
+                .addAll(loopSuite)
+                .add(Insn.jump(Opcode.GOTO, headLabel))// Continue loop
+                .add(Insn.label(endLabel));
+
+        loopState.pop(); // 현재 loop 종료
+        convertedProperty.put(ctx, code);
     }
 
     // flow statement 처리
@@ -457,12 +806,12 @@ public class tinyPythonCompiler extends tinyPythonBaseListener {
     @Override
     public void exitBreak_stmt(tinyPythonParser.Break_stmtContext ctx) {
         super.exitBreak_stmt(ctx);
-        System.out.println("[break 진입] & " + loopState.isEmpty());
+        log.println("[break 진입] & " + loopState.isEmpty());
         if (!loopState.isEmpty()) {
-            String endLabel = loopState.peek()[1]; // 현재 반복의 종료 label로 점프한다.
-            convertedProperty.put(ctx, "goto " + endLabel + "\n");
+            Label endLabel = loopState.peek()[1]; // 현재 반복의 종료 label로 점프한다.
+            convertedProperty.put(ctx, new InsnList(Insn.jump(Opcode.GOTO, endLabel)));
         } else {
-            convertedProperty.put(ctx, "");
+            convertedProperty.put(ctx, new InsnList());
         }
     }
 
@@ -471,10 +820,10 @@ public class tinyPythonCompiler extends tinyPythonBaseListener {
     public void exitContinue_stmt(tinyPythonParser.Continue_stmtContext ctx) {
         super.exitContinue_stmt(ctx);
         if (!loopState.isEmpty()) {
-            String headLabel = loopState.peek()[0];
-            convertedProperty.put(ctx, "goto " + headLabel + "\n");
+            Label headLabel = loopState.peek()[0];
+            convertedProperty.put(ctx, new InsnList(Insn.jump(Opcode.GOTO, headLabel)));
         } else {
-            convertedProperty.put(ctx, "");
+            convertedProperty.put(ctx, new InsnList());
         }
     }
 }
@@ -0,0 +1,73 @@
+import org.antlr.v4.runtime.CharStreams;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * class 파일 backend와 Jasmin backend(그리고 interpreter)가 같은 프로그램에 같은 출력을 내는지 확인.
+ * Jasmin backend는 ./jasmin-2.4/jasmin.jar가 있는 곳에서 실행할 때만 assemble 해서 비교하고, 없으면 Jasmin 텍스트만 확인한다.
+ * 실행: javac -cp <antlr-runtime.jar>:src -d out test/BackendTest.java && java -cp <antlr-runtime.jar>:out BackendTest
+ */
+public class BackendTest {
+    private static final String JASMIN_JAR = "./jasmin-2.4/jasmin.jar";
+
+    public static void main(String[] args) throws Exception {
+        check("string escapes", "tab\there\nnew\nline\nback\\slash\n",
+                "print \"tab\\there\"\nprint \"new\\nline\"\nprint \"back\\\\slash\"\n"); // 문자열 안에는 '"'를 쓸 수 없다
+        longBranches();
+        System.out.println("BackendTest: all passed");
+    }
+
+    // 반복문 body가 32KB를 넘어 분기 offset이 16bit를 벗어나는 method, 나머지 분기도 긴 형태로 바뀐다 (block은 빈 줄로 끝낸다)
+    private static void longBranches() throws Exception {
+        int lines = 6000;
+        StringBuilder source = new StringBuilder("x = 1\ni = 0\nwhile i < 3:\n");
+        for (int n = 0; n < lines; ++n) source.append("    x = x + x + i\n");
+        source.append("    i = i + 1\n\nif x != 5:\n");
+        for (int n = 0; n < lines / 10; ++n) source.append("    x = x + x + i\n");
+        source.append("\nprint x\n");
+
+        int x = 1;
+        int i = 0;
+        for (; i < 3; ++i) {
+            for (int n = 0; n < lines; ++n) x = x + x + i;
+        }
+        if (x != 5) {
+            for (int n = 0; n < lines / 10; ++n) x = x + x + i;
+        }
+        check("long branches", x + "\n", source.toString());
+    }
+
+    private static void check(String name, String expected, String source) throws Exception {
+        tinyPythonCompiler compiler = new tinyPythonCompiler(new CompilerOptions());
+        compiler.setLog(new PrintStream(OutputStream.nullOutputStream()));
+        ClassCode classCode = compiler.compile(CharStreams.fromString(source));
+
+        expect(name + " (class file)", expected, ExecuteJasmin.run(ClassFileEmitter.emit(classCode)));
+        // Jasmin 텍스트의 문자열을 다시 읽으면 원래 상수가 되어야 한다
+        for (MethodCode method : classCode.getMethods()) {
+            for (Insn insn : method.getBody()) {
+                if (insn.getOp() != Opcode.LDC || insn.getConstant() == null) continue;
+                String text = insn.toString().substring("ldc ".length());
+                expect(name + " (jasmin text " + text + ")", insn.getConstant(), tinyPythonCompiler.stringValue(text));
+            }
+        }
+        if (Files.exists(Path.of(JASMIN_JAR))) {
+            expect(name + " (jasmin)", expected, ExecuteJasmin.run(ExecuteJasmin.assemble(JasminEmitter.emit(classCode), "Test.j")));
+        }
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        new Interpreter(SourceParser.parse(CharStreams.fromString(source))).setOut(new PrintStream(buffer, true, StandardCharsets.UTF_8)).run();
+        expect(name + " (interpreter)", expected, buffer.toString(StandardCharsets.UTF_8));
+    }
+
+    private static void expect(String name, String expected, String actual) {
+        if (!actual.equals(expected)) {
+            throw new AssertionError(name + ": expected " + expected.replace("\n", "\\n") + " but was " + actual.replace("\n", "\\n"));
+        }
+    }
+}
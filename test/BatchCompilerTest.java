@@ -0,0 +1,115 @@
+import org.antlr.v4.runtime.CharStreams;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * 여러 파일 batch 컴파일 확인. 함수 정의가 많은 파일은 파일 안에서도 병렬로 변환되므로
+ * 파일 사이의 병렬 작업과 겹쳐도 결과가 맞는지 본다. CPU가 하나뿐인 곳에서는 -XX:ActiveProcessorCount=8로 실행한다.
+ * 실행: javac -cp <antlr-runtime.jar>:src -d out test/BatchCompilerTest.java && java -XX:ActiveProcessorCount=8 -cp <antlr-runtime.jar>:out BatchCompilerTest
+ */
+public class BatchCompilerTest {
+    private static final int FILES = 200;
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("batch");
+        try {
+            manyLargeFiles(dir.resolve("large"));
+            compilerPerWorker();
+            outputConflict(dir.resolve("conflict"));
+        } finally {
+            delete(dir);
+        }
+        System.out.println("BatchCompilerTest: all passed");
+    }
+
+    // 함수 정의 8~14개짜리 파일 여러 개를 한 번에 컴파일하고, 각 class의 함수가 자기 파일의 값을 돌려주는지 확인
+    private static void manyLargeFiles(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        for (int i = 0; i < FILES; ++i) {
+            Files.writeString(dir.resolve("s" + i + ".tpy"), source(i, 8 + i % 7));
+        }
+        int failed = quietly(() -> new BatchCompiler(new CompilerOptions(), false, null).compileAll(List.of(dir)));
+        if (failed != 0) throw new AssertionError("many large files: " + failed + " failed");
+
+        for (int i = 0; i < FILES; ++i) {
+            HiddenScript script = HiddenScript.define(Files.readAllBytes(dir.resolve("s" + i + ".class")));
+            int defs = 8 + i % 7;
+            for (int d = 0; d < defs; ++d) {
+                int actual = script.call("f" + d, 1);
+                if (actual != 1 + i * 100 + d) throw new AssertionError("s" + i + ".f" + d + ": " + actual);
+            }
+        }
+    }
+
+    // ForkJoin worker마다 compiler 하나를 다시 써도, 파일 안의 함수 정의 변환이 다른 파일의 작업과 섞이지 않는다
+    private static void compilerPerWorker() throws Exception {
+        ThreadLocal<tinyPythonCompiler> compilers = ThreadLocal.withInitial(() -> {
+            tinyPythonCompiler compiler = new tinyPythonCompiler(new CompilerOptions());
+            compiler.setLog(new PrintStream(OutputStream.nullOutputStream()));
+            return compiler;
+        });
+        ForkJoinPool pool = new ForkJoinPool(8);
+        try {
+            for (int round = 0; round < 10; ++round) { // 겹치는 시점에 따라 달라지므로 여러 번 돌린다
+                long wrong = pool.submit(() -> IntStream.range(0, FILES).parallel().filter(i -> {
+                    ClassCode classCode = compilers.get().compile(CharStreams.fromString(source(i, 8 + i % 7)), "s" + i);
+                    return classCode.getMethods().size() != 8 + i % 7 + 1; // 함수 + main
+                }).count()).get();
+                if (wrong != 0) throw new AssertionError("compiler per worker: " + wrong + " wrong");
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // 같은 출력 파일을 만드는 두 소스가 있으면 아무것도 만들지 않는다
+    private static void outputConflict(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        Files.writeString(dir.resolve("a-b.tpy"), source(0, 1));
+        Files.writeString(dir.resolve("a_b.tpy"), source(1, 1));
+        int failed = quietly(() -> new BatchCompiler(new CompilerOptions(), false, null).compileAll(List.of(dir)));
+        if (failed != 1) throw new AssertionError("output conflict: expected 1 conflict but was " + failed);
+        if (Files.exists(dir.resolve("a_b.class"))) throw new AssertionError("output conflict: a_b.class was written");
+    }
+
+    // def f<d>(n): return n + <file * 100 + d> 를 defs개 정의한 소스
+    private static String source(int file, int defs) {
+        StringBuilder source = new StringBuilder();
+        for (int d = 0; d < defs; ++d) {
+            source.append("def f").append(d).append("(n):\n    return n + ").append(file * 100 + d).append("\n\n");
+        }
+        return source.append("print f0(1)\n").toString();
+    }
+
+    private interface Batch {
+        int run() throws IOException;
+    }
+
+    // 진행 출력은 버리고 실패 수만 받는다, 실패한 파일의 오류는 stderr로 그대로 나온다
+    private static int quietly(Batch batch) throws IOException {
+        PrintStream original = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8));
+        try {
+            return batch.run();
+        } finally {
+            System.setOut(original);
+        }
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) Files.delete(path);
+        }
+    }
+}
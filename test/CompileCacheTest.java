@@ -0,0 +1,93 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * 디스크 compile cache의 저장, key 구분, 크기 제한 확인.
+ * 실행: javac -cp <antlr-runtime.jar>:src -d out test/CompileCacheTest.java && java -cp <antlr-runtime.jar>:out CompileCacheTest
+ */
+public class CompileCacheTest {
+    private static final int ENTRY_BYTES = 1000;
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("cache");
+        try {
+            roundTrip(dir.resolve("roundtrip"));
+            keys();
+            evictsOldest(dir.resolve("evict"));
+            countsExistingFiles(dir.resolve("reopen"));
+            concurrentPuts(dir.resolve("concurrent"));
+        } finally {
+            delete(dir);
+        }
+        System.out.println("CompileCacheTest: all passed");
+    }
+
+    private static void roundTrip(Path dir) {
+        CompileCache cache = new CompileCache(dir, 1 << 20);
+        if (cache.get("missing") != null) throw new AssertionError("round trip: found a missing key");
+        cache.put("a", new byte[]{1, 2, 3});
+        byte[] bytes = cache.get("a");
+        if (bytes == null || bytes.length != 3 || bytes[2] != 3) throw new AssertionError("round trip: wrong bytes");
+        if (cache.getHits() != 1 || cache.getMisses() != 1) throw new AssertionError("round trip: hits " + cache.getHits() + ", misses " + cache.getMisses());
+    }
+
+    // 소스, 옵션, class 이름, 형식 중 하나라도 다르면 key가 다르다
+    private static void keys() {
+        CompilerOptions options = new CompilerOptions();
+        String key = CompileCache.keyOf("print 1\n", options, "Test", "class");
+        if (!key.equals(CompileCache.keyOf("print 1\n", new CompilerOptions(), "Test", "class"))) throw new AssertionError("keys: not stable");
+        for (String other : new String[]{
+                CompileCache.keyOf("print 2\n", options, "Test", "class"),
+                CompileCache.keyOf("print 1\n", CompilerOptions.none(), "Test", "class"),
+                CompileCache.keyOf("print 1\n", options, "Other", "class"),
+                CompileCache.keyOf("print 1\n", options, "Test", "jasmin")}) {
+            if (other.equals(key)) throw new AssertionError("keys: collision");
+        }
+    }
+
+    // 한도를 넘으면 가장 오래 쓰지 않은 것부터 한도의 90%까지 지운다
+    private static void evictsOldest(Path dir) throws IOException {
+        CompileCache cache = new CompileCache(dir, 10 * ENTRY_BYTES);
+        for (int i = 0; i < 10; ++i) {
+            cache.put("e" + i, new byte[ENTRY_BYTES]);
+            Files.setLastModifiedTime(dir.resolve("e" + i), FileTime.fromMillis(1_000_000L * (i + 1)));
+        }
+        if (cache.getEvictions() != 0) throw new AssertionError("evict: evicted below the limit");
+        cache.put("e10", new byte[ENTRY_BYTES]);
+        if (cache.getEvictions() != 2) throw new AssertionError("evict: expected 2 evictions but was " + cache.getEvictions());
+        if (Files.exists(dir.resolve("e0")) || Files.exists(dir.resolve("e1"))) throw new AssertionError("evict: oldest entries kept");
+        if (!Files.exists(dir.resolve("e10"))) throw new AssertionError("evict: newest entry removed");
+    }
+
+    // 다시 열어도 이미 있는 파일의 크기를 센다
+    private static void countsExistingFiles(Path dir) {
+        CompileCache first = new CompileCache(dir, 10 * ENTRY_BYTES);
+        for (int i = 0; i < 10; ++i) first.put("e" + i, new byte[ENTRY_BYTES]);
+        CompileCache second = new CompileCache(dir, 10 * ENTRY_BYTES);
+        second.put("e10", new byte[ENTRY_BYTES]);
+        if (second.getEvictions() == 0) throw new AssertionError("reopen: existing files not counted");
+    }
+
+    // 여러 thread가 함께 저장해도 정리 뒤 크기는 한도를 넘지 않는다
+    private static void concurrentPuts(Path dir) throws IOException {
+        long limit = 20 * ENTRY_BYTES;
+        CompileCache cache = new CompileCache(dir, limit);
+        IntStream.range(0, 200).parallel().forEach(i -> cache.put("e" + i, new byte[ENTRY_BYTES]));
+        long total;
+        try (Stream<Path> files = Files.list(dir)) {
+            total = files.mapToLong(file -> file.toFile().length()).sum();
+        }
+        if (total > limit) throw new AssertionError("concurrent: " + total + " bytes kept, limit " + limit);
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) Files.delete(path);
+        }
+    }
+}
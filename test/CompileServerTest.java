@@ -0,0 +1,87 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 컴파일 서버의 요청 제한 확인. 서버를 이 process 안에서 띄우고 socket으로 요청을 보낸다.
+ * 실행 시간 제한(10초)과 읽기 제한(5초)을 기다리므로 20초쯤 걸린다.
+ * 실행: javac -cp <antlr-runtime.jar>:src -d out test/CompileServerTest.java && java -cp <antlr-runtime.jar>:out CompileServerTest
+ */
+public class CompileServerTest {
+    private static final int PORT = 5961;
+
+    public static void main(String[] args) throws Exception {
+        Thread server = new Thread(() -> {
+            try {
+                new CompileServer(PORT, new CompilerOptions()).serve();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        server.setDaemon(true);
+        server.start();
+        waitForServer();
+
+        String output = new String(CompileServer.request(PORT, "run", "x = 1\nprint x + 2\n"), StandardCharsets.UTF_8);
+        if (!output.equals("3\n")) throw new AssertionError("run: " + output);
+
+        expectError("output limit", "while 1 < 2:\n    print 1\n", "출력 크기 제한 초과");
+        expectError("time limit", "x = 0\nwhile 1 < 2:\n    x = x + 1\n", "실행 시간 제한 초과");
+        oversizedRequest();
+        stalledClient();
+        System.out.println("CompileServerTest: all passed");
+    }
+
+    private static void expectError(String name, String source, String message) {
+        try {
+            CompileServer.request(PORT, "run", source);
+        } catch (IOException e) {
+            if (e.getMessage().contains(message)) return;
+            throw new AssertionError(name + ": unexpected error " + e.getMessage());
+        }
+        throw new AssertionError(name + ": no error");
+    }
+
+    // 길이가 너무 긴 요청은 내용을 받지 않고 오류로 답한다
+    private static void oversizedRequest() throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), PORT);
+             DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+             DataInputStream in = new DataInputStream(socket.getInputStream())) {
+            out.writeUTF("run");
+            out.writeInt(Integer.MAX_VALUE);
+            out.flush();
+            if (in.readInt() != CompileServer.ERROR) throw new AssertionError("oversized request: accepted");
+        }
+    }
+
+    // 길이만 보내고 멈춘 client의 연결은 서버가 닫는다
+    private static void stalledClient() throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), PORT);
+             DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+             DataInputStream in = new DataInputStream(socket.getInputStream())) {
+            socket.setSoTimeout(30_000); // 서버가 닫지 않으면 여기서 실패한다
+            out.writeUTF("run");
+            out.writeInt(10);
+            out.flush();
+            in.readInt();
+            throw new AssertionError("stalled client: got a reply");
+        } catch (EOFException e) {
+            // 서버가 연결을 닫았다
+        }
+    }
+
+    private static void waitForServer() throws InterruptedException {
+        for (int i = 0; i < 100; ++i) {
+            try (Socket ignored = new Socket(InetAddress.getLoopbackAddress(), PORT)) {
+                return;
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        throw new AssertionError("server did not start");
+    }
+}
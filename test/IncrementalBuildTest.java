@@ -0,0 +1,74 @@
+import org.antlr.v4.runtime.CharStreams;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 증분 컴파일 확인. 바뀐 함수만 다시 변환하고, 결과는 처음부터 컴파일한 것과 같은 출력을 낸다.
+ * 실행: javac -cp <antlr-runtime.jar>:src -d out test/IncrementalBuildTest.java && java -cp <antlr-runtime.jar>:out IncrementalBuildTest
+ */
+public class IncrementalBuildTest {
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("incremental");
+        Path artifactFile = dir.resolve("Test.ir");
+        try {
+            tinyPythonCompiler first = compiler(new CompilerOptions());
+            first.compile(CharStreams.fromString(source(2)), "Test", BuildArtifact.read(artifactFile)); // 파일이 없으면 빈 빌드
+            expectCounts("first build", first.getBuildArtifact(), 0, 5);
+            first.getBuildArtifact().write(artifactFile);
+
+            // 같은 소스는 모두 재사용
+            tinyPythonCompiler same = compiler(new CompilerOptions());
+            ClassCode sameCode = same.compile(CharStreams.fromString(source(2)), "Test", BuildArtifact.read(artifactFile));
+            expectCounts("unchanged", same.getBuildArtifact(), 5, 0);
+            expectOutput("unchanged", source(2), sameCode);
+
+            // 함수 하나만 바꾸면 그 함수만 다시 변환
+            tinyPythonCompiler changed = compiler(new CompilerOptions());
+            ClassCode changedCode = changed.compile(CharStreams.fromString(source(7)), "Test", BuildArtifact.read(artifactFile));
+            expectCounts("one def changed", changed.getBuildArtifact(), 4, 1);
+            expectOutput("one def changed", source(7), changedCode);
+
+            // 옵션이 다르면 재사용하지 않는다
+            tinyPythonCompiler other = compiler(CompilerOptions.none());
+            other.compile(CharStreams.fromString(source(2)), "Test", BuildArtifact.read(artifactFile));
+            expectCounts("other options", other.getBuildArtifact(), 0, 5);
+        } finally {
+            Files.deleteIfExists(artifactFile);
+            Files.delete(dir);
+        }
+        System.out.println("IncrementalBuildTest: all passed");
+    }
+
+    // 함수 4개와 main, f2의 상수만 바꿔 가며 쓴다
+    private static String source(int constant) {
+        return "def f0(n):\n    return n + 1\n\n"
+                + "def f1(n):\n    return f0(n) + 10\n\n"
+                + "def f2(n):\n    return n + " + constant + "\n\n"
+                + "def f3(n):\n    return f1(n) + f2(n)\n\n"
+                + "print f3(5)\n";
+    }
+
+    private static tinyPythonCompiler compiler(CompilerOptions options) {
+        tinyPythonCompiler compiler = new tinyPythonCompiler(options);
+        compiler.setLog(new PrintStream(OutputStream.nullOutputStream()));
+        return compiler;
+    }
+
+    private static void expectCounts(String name, BuildArtifact build, int reused, int regenerated) {
+        if (build.getReused() != reused || build.getRegenerated() != regenerated) {
+            throw new AssertionError(name + ": expected reused " + reused + ", regenerated " + regenerated
+                    + " but was " + build.getReused() + ", " + build.getRegenerated());
+        }
+    }
+
+    // 처음부터 컴파일한 결과와 출력이 같은지
+    private static void expectOutput(String name, String source, ClassCode incremental) throws Exception {
+        String expected = ExecuteJasmin.run(ClassFileEmitter.emit(compiler(new CompilerOptions()).compile(CharStreams.fromString(source))));
+        String actual = ExecuteJasmin.run(ClassFileEmitter.emit(incremental));
+        if (!actual.equals(expected)) throw new AssertionError(name + ": expected " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,78 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * REPL 입력 사이에 유지되는 변수와 오류 뒤의 session 확인.
+ * 실행: javac -cp <antlr-runtime.jar>:src -d out test/ReplTest.java && java -cp <antlr-runtime.jar>:out ReplTest
+ */
+public class ReplTest {
+
+    public static void main(String[] args) throws Exception {
+        // 이전 입력에서 만든 변수는 이번 입력에서 한 번만 할당되어도 상수로 접지 않는다
+        check("reassigned in loop", "1\n1\n",
+                "y = 1\n",
+                "i = 0\n",
+                "while i < 1:\n    if i > 0: y = 5\n    print y\n    i = i + 1\n\n",
+                "print y\n");
+        check("variables and functions persist", "15\n55\n",
+                "x = 10\n",
+                "def fib(n):\n    if n < 2:\n        return n\n    else:\n        return fib(n - 1) + fib(n - 2)\n\n",
+                "x = x + 5\n",
+                "print x\n",
+                "print fib(x - 5)\n");
+        stackOverflowKeepsSession();
+        optionsUnchanged();
+        System.out.println("ReplTest: all passed");
+    }
+
+    // 끝없는 재귀는 오류로 알리고, 이전 입력의 변수는 남고 실패한 입력의 변수는 만들지 않는다
+    private static void stackOverflowKeepsSession() throws Exception {
+        String input = "x = 7\n"
+                + "def f(n):\n    return f(n + 1) + 1\n\n"
+                + "y = f(1)\n"
+                + "print x\n"
+                + "print y\n";
+        InputStream originalIn = System.in;
+        PrintStream originalOut = System.out;
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        System.setIn(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+        System.setOut(new PrintStream(buffer, true, StandardCharsets.UTF_8));
+        try {
+            new Repl(new CompilerOptions()).loop();
+        } finally {
+            System.setIn(originalIn);
+            System.setOut(originalOut);
+        }
+        String[] lines = buffer.toString(StandardCharsets.UTF_8).replace("... ", "").split(">>> ");
+        // lines[0]은 첫 prompt 앞, 이후 입력마다 하나
+        if (!lines[3].startsWith("error: java.lang.StackOverflowError")) throw new AssertionError("stack overflow: " + lines[3]);
+        if (!lines[4].equals("7\n")) throw new AssertionError("stack overflow: x lost, " + lines[4]);
+        if (!lines[5].startsWith("error: ")) throw new AssertionError("stack overflow: y defined, " + lines[5]);
+    }
+
+    // REPL이 memoize를 끄더라도 넘겨준 설정 객체는 바꾸지 않는다
+    private static void optionsUnchanged() {
+        CompilerOptions options = new CompilerOptions().setMemoize(true);
+        new Repl(options);
+        if (!options.isMemoize()) throw new AssertionError("options: memoize was turned off in the caller's options");
+    }
+
+    private static void check(String name, String expected, String... inputs) throws Exception {
+        Repl repl = new Repl(new CompilerOptions());
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        PrintStream original = System.out;
+        System.setOut(new PrintStream(buffer, true, StandardCharsets.UTF_8));
+        try {
+            for (String input : inputs) repl.eval(input);
+        } finally {
+            System.setOut(original);
+        }
+        String actual = buffer.toString(StandardCharsets.UTF_8);
+        if (!actual.equals(expected)) {
+            throw new AssertionError(name + ": expected " + expected.replace("\n", "\\n") + " but was " + actual.replace("\n", "\\n"));
+        }
+    }
+}